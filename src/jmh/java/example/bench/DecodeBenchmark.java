@@ -0,0 +1,50 @@
+package example.bench;
+
+import example.codec.ResponseDecoder;
+import example.domain.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One StateLocations line as the server sends it, through data binding as Client used to
+// read it and through ResponseDecoder from a String and from bytes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    @Param({"100"})
+    int size;
+
+    @Param({"10", "200"})
+    int items;
+
+    @Param({"2", "20"})
+    int players;
+
+    private Fixture fixture;
+    private ResponseDecoder decoder;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new Fixture(size, 0.2, items, players);
+        decoder = new ResponseDecoder(Fixture.objectMapper);
+    }
+
+    @Benchmark
+    public Response readValue() throws Exception {
+        return Fixture.objectMapper.readValue(fixture.line, Response.class);
+    }
+
+    @Benchmark
+    public boolean decodeString() throws Exception {
+        return decoder.decode(fixture.line);
+    }
+
+    @Benchmark
+    public boolean decodeBytes() throws Exception {
+        return decoder.decode(fixture.bytes, 0, fixture.bytes.length);
+    }
+}
@@ -0,0 +1,71 @@
+package example.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.domain.Response;
+import example.domain.game.*;
+import example.path.DistanceFields;
+import example.state.GridIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+// One seeded game state: a size x size SimpleCave with the given share of interior rock,
+// items (every fifth one health, the rest gold) and players (this player first, then
+// alternating other humans and dragons), all on distinct free cells. The same parameters
+// always build the same fixture.
+final class Fixture {
+    static final long SEED = 42;
+    static final ObjectMapper objectMapper = new ObjectMapper();
+
+    final BitCave cave;
+    final Player.HumanPlayer me;
+    final Response.StateLocations locations;
+    final String line;
+    final byte[] bytes;
+    final GridIndex index;
+    final DistanceFields fields;
+
+    Fixture(int size, double density, int items, int players) throws JsonProcessingException {
+        final var random = new Random(SEED);
+        final var simpleCave = new SimpleCave(size, size, random);
+        for (int row = 1; row < size - 1; row++) {
+            for (int column = 1; column < size - 1; column++) {
+                simpleCave.set(row, column, random.nextDouble() < density);
+            }
+        }
+        this.cave = BitCave.of(simpleCave);
+
+        final var taken = new HashSet<Location>();
+        final var itemLocations = new ArrayList<Response.StateLocations.ItemLocation>(items);
+        for (int i = 0; i < items; i++) {
+            final Item item = i % 5 == 4 ? new Item.Health(i, 10 + random.nextInt(21)) : new Item.Gold(i, 1 + random.nextInt(10));
+            itemLocations.add(new Response.StateLocations.ItemLocation(item, freeLocation(simpleCave, taken, random)));
+        }
+        this.me = new Player.HumanPlayer("me");
+        final var sizes = Player.Dragon.Size.values();
+        final var playerLocations = new ArrayList<Response.StateLocations.PlayerLocation>(players);
+        for (int i = 0; i < players; i++) {
+            final Player player = i == 0 ? me : i % 2 == 1 ? new Player.HumanPlayer("player-" + i) : new Player.Dragon(sizes[random.nextInt(sizes.length)]);
+            playerLocations.add(new Response.StateLocations.PlayerLocation(player, freeLocation(simpleCave, taken, random)));
+        }
+        this.locations = new Response.StateLocations(itemLocations, playerLocations, 100, 0);
+        this.line = objectMapper.writeValueAsString(locations);
+        this.bytes = line.getBytes(StandardCharsets.UTF_8);
+
+        this.index = new GridIndex(cave);
+        index.update(locations, me);
+        this.fields = new DistanceFields(cave, 256L << 20);
+    }
+
+    private static Location freeLocation(SimpleCave cave, HashSet<Location> taken, Random random) {
+        while (true) {
+            final var location = new Location(random.nextInt(cave.rows()), random.nextInt(cave.columns()));
+            if (!cave.rock(location.row(), location.column()) && taken.add(location)) {
+                return location;
+            }
+        }
+    }
+}
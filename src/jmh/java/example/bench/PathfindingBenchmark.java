@@ -0,0 +1,74 @@
+package example.bench;
+
+import example.Strategy;
+import example.path.PathBuffer;
+import example.path.Planner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Strategy.findPathToTarget from this player to the target Strategy picks, on caves from
+// 20x20 to 1000x1000, with A* and Jump Point Search (-p planner=incremental for D* Lite).
+// The expanded counter is reported in the score's unit, so expanded / score is the number of
+// nodes one search expands. The path goes into a reused buffer as in the game loop, so
+// -prof gc should show no allocation per search for these two planners.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindingBenchmark {
+    @Param({"20", "100", "500", "1000"})
+    int size;
+
+    @Param({"0.1", "0.2", "0.35"})
+    double density;
+
+    @Param({"10", "200"})
+    int items;
+
+    @Param({"2", "20"})
+    int players;
+
+    @Param({"astar", "jps"})
+    String planner;
+
+    private Fixture fixture;
+    private Strategy strategy;
+    private int myCell;
+    private int target;
+    private final PathBuffer path = new PathBuffer();
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new Fixture(size, density, items, players);
+        strategy = new Strategy(Planner.create(planner));
+        myCell = fixture.index.myCell();
+        target = strategy.findTargetGoldLocation(fixture.index, fixture.fields, myCell);
+    }
+
+    @TearDown
+    public void tearDown() {
+        strategy.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Expansions {
+        public long expanded;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expanded = 0;
+        }
+    }
+
+    @Benchmark
+    public int findPathToTarget(Expansions expansions) {
+        final var before = strategy.planner().expanded();
+        strategy.findPathToTarget(fixture.index, myCell, target, path);
+        expansions.expanded += strategy.planner().expanded() - before;
+        return path.size();
+    }
+}
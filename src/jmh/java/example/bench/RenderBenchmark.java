@@ -0,0 +1,43 @@
+package example.bench;
+
+import example.render.Renderer;
+import example.render.TerminalRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// What render() costs the game loop: taking the snapshot and handing it over. Drawing runs on
+// the renderer's own thread, here into a null stream, and shows up only as dropped frames.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"20", "100", "500", "1000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean diff;
+
+    private Fixture fixture;
+    private Renderer renderer;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new Fixture(size, 0.2, 200, 20);
+        renderer = new TerminalRenderer(diff, OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() {
+        renderer.close();
+    }
+
+    @Benchmark
+    public void render() {
+        renderer.render(fixture.index, fixture.index.goldCount() > 0 ? fixture.index.goldCell(0) : -1);
+    }
+}
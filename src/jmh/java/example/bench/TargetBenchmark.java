@@ -0,0 +1,52 @@
+package example.bench;
+
+import example.Strategy;
+import example.path.DistanceFields;
+import example.path.Planner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Strategy.findTargetGoldLocation. "warm" reuses the distance fields like consecutive ticks
+// on one cave do, "cold" starts every call with an empty cache like the first tick does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargetBenchmark {
+    @Param({"20", "100", "500", "1000"})
+    int size;
+
+    @Param({"0.1", "0.2", "0.35"})
+    double density;
+
+    @Param({"10", "200"})
+    int items;
+
+    @Param({"2", "20"})
+    int players;
+
+    private Fixture fixture;
+    private Strategy strategy;
+    private int myCell;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new Fixture(size, density, items, players);
+        strategy = new Strategy(Planner.create("astar"));
+        myCell = fixture.index.myCell();
+    }
+
+    @Benchmark
+    public int warm() {
+        return strategy.findTargetGoldLocation(fixture.index, fixture.fields, myCell);
+    }
+
+    @Benchmark
+    public int cold() {
+        final var fields = new DistanceFields(fixture.cave, 256L << 20);
+        return strategy.findTargetGoldLocation(fixture.index, fields, myCell);
+    }
+}
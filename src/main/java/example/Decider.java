@@ -0,0 +1,208 @@
+package example;
+
+import example.codec.LocationsBuffer;
+import example.domain.game.Direction;
+import example.metrics.Phase;
+import example.metrics.TickMetrics;
+import example.path.AStar;
+import example.path.Cells;
+import example.path.HierarchicalPlanner;
+import example.path.JumpPointSearch;
+import example.path.PathBuffer;
+import example.path.SpaceTimeAStar;
+import example.route.RouteOptimizer;
+import example.state.DecisionCache;
+import example.state.GridIndex;
+import example.state.SharedCaves;
+import example.state.StateTracker;
+import example.state.ThreatMap;
+import example.state.ZobristHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+// Turns a stream of states into moves: follows each state with a StateTracker, picks the
+// target and takes the first step towards it. Session runs one on its planner thread and
+// Replay feeds one from a recorded log, so both decide with exactly the same code.
+public final class Decider {
+    private static final Logger logger = LoggerFactory.getLogger(Decider.class);
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // -Dmazev.route=true plans a tour of the gold instead of heading for the nearest
+    private static final RouteOptimizer.Settings ROUTE = Boolean.getBoolean("mazev.route") ? RouteOptimizer.Settings.fromProperties() : null;
+    private static final ThreatMap.Settings THREATS = ThreatMap.Settings.fromProperties();
+    // -Dmazev.cache=true answers a state seen before from a DecisionCache
+    private static final DecisionCache.Settings CACHE = Boolean.getBoolean("mazev.cache") ? DecisionCache.Settings.fromProperties() : null;
+
+    private final Strategy strategy;
+    private final TickMetrics metrics;
+    private final RandomGenerator random;
+    // Deciding a move allocates nothing once the cave and this buffer are set up
+    private final PathBuffer pathToGold = new PathBuffer();
+    // Only for planners whose path depends on nothing but the state they are given
+    private final DecisionCache cache;
+    // Steps down a distance field stand in for the default A* only, any other planner is
+    // asked every tick so its own behaviour and metrics are what the session sees
+    private final boolean fieldSteps;
+
+    private SharedCaves.Shared cave;
+    private GridIndex index;
+    private StateTracker tracker;
+    private RouteOptimizer route;
+    private ThreatMap threats;
+    private ZobristHash hash;
+    private int target = -1;
+    private int cost;
+    private boolean randomMove;
+    private long decided;
+
+    public Decider(Strategy strategy, TickMetrics metrics, RandomGenerator random) {
+        this.strategy = strategy;
+        this.metrics = metrics;
+        this.random = random;
+        final var planner = strategy.planner();
+        final var pure = planner instanceof AStar || planner instanceof JumpPointSearch || planner instanceof HierarchicalPlanner || planner instanceof SpaceTimeAStar;
+        this.cache = CACHE != null && ROUTE == null && pure ? new DecisionCache(CACHE) : null;
+        this.fieldSteps = planner instanceof AStar;
+    }
+
+    // A StateCave arrived, decisions made so far may not hold on it even if it is the same cave
+    public void caveArrived() {
+        strategy.planner().reset();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    // Takes in the state; the locations can be refilled once this returns
+    public void update(SharedCaves.Shared cave, LocationsBuffer locations, int self) {
+        if (cave != this.cave) {
+            this.cave = cave;
+            strategy.planner().reset();
+            index = new GridIndex(cave.cave());
+            // The index follows what changed from state to state instead of being refilled
+            tracker = new StateTracker(index.columns());
+            tracker.subscribe(index);
+            route = ROUTE != null ? new RouteOptimizer(ROUTE, cave.fields(), tracker, ForkJoinPool.commonPool()) : null;
+            if (strategy.planner() instanceof HierarchicalPlanner hierarchical) {
+                hierarchical.clusters(cave.clusters());
+            }
+            // Dragons and rivals only cost something to a planner that looks at when a cell is entered
+            threats = strategy.planner() instanceof SpaceTimeAStar ? new ThreatMap(index, THREATS) : null;
+            if (cache != null) {
+                hash = new ZobristHash(index.cells());
+                tracker.subscribe(hash);
+                cache.clear();
+            }
+        }
+        metrics.changes(tracker.track(locations, self));
+        if (threats != null) {
+            threats.update();
+        }
+    }
+
+    // The move for the last state, null when this player is not in it. mark is when the
+    // decision started, the TARGET and PLAN phases are recorded from it.
+    public Direction decide(long mark) {
+        final var fields = cave.fields();
+        final var myCell = index.myCell();
+        if (myCell < 0) {
+            target = -1;
+            randomMove = false;
+            decided = mark;
+            return null;
+        }
+        randomMove = false;
+        final var cached = cache != null ? cache.find(hash.hash(), index) : -1;
+        if (cache != null) {
+            metrics.cacheLookup(cached >= 0);
+        }
+        if (cached >= 0) {
+            target = cache.target(cached);
+            cost = cache.cost(cached);
+            mark = metrics.record(Phase.TARGET, mark);
+            decided = metrics.record(Phase.PLAN, mark);
+            return cache.direction(cached);
+        }
+
+        var targetGold = route != null ? route.target(myCell) : -1;
+        if (targetGold < 0) {
+            targetGold = strategy.findTargetGoldLocation(index, fields, myCell);
+        }
+        target = targetGold;
+        mark = metrics.record(Phase.TARGET, mark);
+        if (targetGold < 0) {
+            logger.debug("Target gold nor health location not found!");
+        }
+
+        // With no health on the map every step costs the same, so a step down the distance field
+        // that no other player stands in the way of is on a path as short as the one A* would find
+        final var step = fieldSteps && targetGold >= 0 && index.healthCount() == 0
+                ? fields.nextStep(targetGold, myCell, index) : -1;
+        final var deadlineHits = strategy.planner().deadlineHits();
+        Direction direction;
+        cost = 0;
+        if (step >= 0) {
+            direction = Cells.direction(myCell, step, index.columns());
+            cost = fields.distance(targetGold, myCell);
+        } else {
+            strategy.findPathToTarget(threats != null ? threats : index, myCell, targetGold, pathToGold);
+            metrics.expanded(strategy.planner().expanded());
+            metrics.deadlineHits(strategy.planner().deadlineHits());
+            final var safest = pathToGold.isEmpty() && threats != null ? threats.safestStep(myCell) : -1;
+            if (safest >= 0) {
+                // Nowhere to head for, so at least stay out of reach
+                direction = Cells.direction(myCell, safest, index.columns());
+            } else if (pathToGold.isEmpty()) {
+                if (index.surrounded(myCell)) {
+                    logger.debug("My player is surrounded by rocks or players. Moving in a random direction.");
+                } else {
+                    logger.debug("No path to target gold! Moving in a random direction.");
+                    metrics.noPath();
+                }
+                metrics.randomMove();
+                randomMove = true;
+                direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            } else {
+                direction = pathToGold.first();
+                cost = pathToGold.size();
+            }
+        }
+        // A random move or a search cut short by its budget may come out differently next time
+        if (cache != null && !randomMove && strategy.planner().deadlineHits() == deadlineHits) {
+            cache.put(hash.hash(), index, direction, targetGold, cost);
+        }
+        decided = metrics.record(Phase.PLAN, mark);
+        return direction;
+    }
+
+    public GridIndex index() {
+        return index;
+    }
+
+    // Cell the last decision headed for, -1 when there was none
+    public int target() {
+        return target;
+    }
+
+    // Steps of the path the last decision started on, 0 when it did not follow one
+    public int cost() {
+        return cost;
+    }
+
+    // Null unless -Dmazev.cache is set and the planner's paths can be cached
+    public DecisionCache cache() {
+        return cache;
+    }
+
+    // Whether the last move was picked at random for want of a path
+    public boolean randomMove() {
+        return randomMove;
+    }
+
+    // When the last decision was made, the mark for the phase after it
+    public long decided() {
+        return decided;
+    }
+}
@@ -0,0 +1,327 @@
+package example;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.codec.LocationsBuffer;
+import example.codec.ResponseDecoder;
+import example.codec.SessionLogWriter;
+import example.domain.Request;
+import example.domain.Response;
+import example.domain.game.*;
+import example.metrics.Phase;
+import example.metrics.TickMetrics;
+import example.net.Commands;
+import example.net.Connection;
+import example.net.ReconnectPolicy;
+import example.pipeline.Handoff;
+import example.path.HierarchicalPlanner;
+import example.render.Renderer;
+import example.state.SharedCaves;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// One bot: its connection, decoder, planner state and metrics. Everything mutable belongs to
+// the session, so many can run side by side; the ObjectMapper and the caves are shared.
+public final class Session implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(Session.class);
+    private static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger("mazev.net.connectTimeoutMillis", 10_000);
+    private static final long READ_TIMEOUT_MILLIS = Long.getLong("mazev.net.readTimeoutMillis", 30_000);
+    // -Dmazev.record=<file> logs what the session receives and decides for Replay, written out
+    // every tick; sessions after the first in the JVM add .1, .2, ... to the name
+    private static final String RECORD = System.getProperty("mazev.record");
+    private static final AtomicInteger RECORDINGS = new AtomicInteger();
+
+    private final Endpoint endpoint;
+    private final SharedCaves caves;
+    private final Strategy strategy;
+    private final TickMetrics metrics;
+    private final Renderer renderer;
+    private final ReconnectPolicy reconnectPolicy;
+    private final ResponseDecoder decoder;
+    private final Commands commands;
+    private SessionLogWriter recorder;
+
+    public record Endpoint(String host, int port, String key) {
+        public static Endpoint fromProperties() {
+            return new Endpoint(
+                    System.getProperty("mazev.host", "35.208.184.138"),
+                    Integer.getInteger("mazev.port", 8080),
+                    System.getProperty("mazev.key", "DPcrSG2b"));
+        }
+    }
+
+    public Session(Endpoint endpoint, ObjectMapper objectMapper, SharedCaves caves, Strategy strategy, TickMetrics metrics, Renderer renderer, ReconnectPolicy reconnectPolicy) throws JsonProcessingException {
+        this.endpoint = endpoint;
+        this.caves = caves;
+        this.strategy = strategy;
+        this.metrics = metrics;
+        this.renderer = renderer;
+        this.reconnectPolicy = reconnectPolicy;
+        this.decoder = new ResponseDecoder(objectMapper);
+        this.commands = new Commands(objectMapper);
+    }
+
+    public Endpoint endpoint() {
+        return endpoint;
+    }
+
+    public TickMetrics metrics() {
+        return metrics;
+    }
+
+    // Plays until the game cannot go on, the reconnect policy gives up or the thread is
+    // interrupted, then closes the strategy
+    @Override
+    public void run() {
+        try (strategy; final var recorder = RECORD != null ? SessionLogWriter.open(recordPath()) : null) {
+            this.recorder = recorder;
+            final var authorize = new Request.Authorize(endpoint.key());
+            final var authorizeLine = commands.encode(authorize);
+            var attempt = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                final var ticks = metrics.ticks();
+                try (final var connection = Connection.open(endpoint.host(), endpoint.port(), CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS)) {
+                    logger.info("Connected to server at {}:{}", endpoint.host(), endpoint.port());
+                    connection.write(authorizeLine.rewind());
+                    logger.info("Sent command: {}", authorize);
+                    if (recorder != null) {
+                        recorder.authorize();
+                    }
+                    if (!play(connection)) {
+                        return;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    logger.info("Server closed the connection");
+                } catch (IOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // Interrupting a blocked read closes the channel, the session was asked to stop
+                        break;
+                    }
+                    logger.error("Error in client operation", e);
+                }
+
+                // Count attempts from the last connection that got to play
+                attempt = metrics.ticks() > ticks ? 1 : attempt + 1;
+                if (!reconnectPolicy.allows(attempt)) {
+                    break;
+                }
+                final var delay = reconnectPolicy.delayMillis(attempt);
+                logger.info("Reconnecting in {} ms, attempt {} of {}", delay, attempt, reconnectPolicy.maxAttempts());
+                Thread.sleep(delay);
+            }
+        } catch (IOException e) {
+            logger.error("Error in client operation", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Plays on one connection, false when the game cannot go on and reconnecting will not help.
+    // This thread reads and decodes, a planner thread decides and a writer thread sends, so the
+    // next state is decoded while the current one is planned. The planner always takes the
+    // newest state; states that arrive while it is busy are skipped rather than answered late.
+    private boolean play(Connection connection) throws IOException {
+        final var ticks = new Handoff<Tick>();
+        final var moves = new Handoff<Direction>();
+        final var stop = new AtomicBoolean();
+        final var writeFailure = new AtomicReference<IOException>();
+        final var threads = Thread.currentThread().isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        final var planner = threads.name("planner-" + endpoint.key()).start(() -> plan(connection, ticks, moves, stop));
+        final var writer = threads.name("writer-" + endpoint.key()).start(() -> write(connection, moves, writeFailure));
+
+        final var names = decoder.locations().names();
+        SharedCaves.Shared shared = null;
+        var caveCount = 0;
+        Player player = null;
+        var tick = new Tick(new LocationsBuffer(names));
+        decoder.locations(tick.locations);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final var mark = System.nanoTime();
+                if (!connection.readLine()) {
+                    break;
+                }
+                final var read = System.nanoTime();
+                final var isLocations = decoder.decode(connection.lineArray(), connection.lineOffset(), connection.lineLength());
+                final var decoded = System.nanoTime();
+                if (!isLocations) {
+                    switch (decoder.response()) {
+                        case Response.Authorized authorized -> {
+                            player = authorized.humanPlayer();
+                            if (recorder != null) {
+                                recorder.authorized(authorized.humanPlayer().name());
+                            }
+                            logger.info("authorized: {}", authorized);
+                        }
+                        case Response.Unauthorized unauthorized -> {
+                            logger.error("unauthorized: {}", unauthorized);
+                            if (recorder != null) {
+                                recorder.unauthorized();
+                            }
+                            return false;
+                        }
+                        case Response.StateCave stateCave -> {
+                            // The planner may still be on the old cave, releasing only unlists it
+                            if (shared != null) {
+                                caves.release(shared);
+                            }
+                            shared = caves.acquire(stateCave.cave());
+                            caveCount++;
+                            logger.info("cave: {}", shared.cave());
+                            if (recorder != null) {
+                                recorder.cave(shared.cave());
+                            }
+                            if (strategy.planner() instanceof HierarchicalPlanner) {
+                                // Precomputed here, before the first locations are planned on
+                                shared.clusters();
+                            }
+                        }
+                        case Response.StateLocations ignored -> {
+                            // Always delivered through decoder.locations()
+                        }
+                    }
+                } else if (shared != null) {
+                    logger.debug("locations: {}", tick.locations);
+                    // Names are only touched on this thread, the planner gets the id
+                    tick.self = player instanceof Player.HumanPlayer humanPlayer ? names.find(humanPlayer.name()) : -1;
+                    tick.cave = shared;
+                    tick.caveCount = caveCount;
+                    tick.readNanos = read - mark;
+                    tick.decodeNanos = decoded - read;
+                    tick.sequence = recorder != null ? recorder.locations(tick.locations, tick.self) : -1;
+                    final var next = ticks.publish(tick);
+                    tick = next != null ? next : new Tick(new LocationsBuffer(names));
+                    decoder.locations(tick.locations);
+                }
+            }
+            return !stop.get();
+        } catch (IOException e) {
+            if (stop.get()) {
+                // The planner closed the connection to end the game
+                return false;
+            }
+            throw writeFailure.get() != null ? writeFailure.get() : e;
+        } finally {
+            ticks.close();
+            moves.close();
+            join(planner);
+            join(writer);
+            if (shared != null) {
+                caves.release(shared);
+            }
+        }
+    }
+
+    private void plan(Connection connection, Handoff<Tick> ticks, Handoff<Direction> moves, AtomicBoolean stop) {
+        final var decider = new Decider(strategy, metrics, ThreadLocalRandom.current());
+        var caveCount = 0;
+        // Already reported of this connection's skipped states
+        var skipped = 0L;
+        try {
+            Tick tick;
+            while ((tick = ticks.take()) != null) {
+                final var mark = System.nanoTime();
+                metrics.elapsed(Phase.READ, tick.readNanos);
+                metrics.elapsed(Phase.DECODE, tick.decodeNanos);
+                final var skippedTotal = ticks.skipped();
+                metrics.skipped(skippedTotal - skipped);
+                skipped = skippedTotal;
+                if (tick.caveCount != caveCount) {
+                    caveCount = tick.caveCount;
+                    decider.caveArrived();
+                }
+                decider.update(tick.cave, tick.locations, tick.self);
+                final var sequence = tick.sequence;
+                ticks.release(tick);
+
+                final var direction = decider.decide(mark);
+                if (direction == null) {
+                    logger.error("My location not found!");
+                    stop.set(true);
+                    connection.close();
+                    return;
+                }
+                moves.publish(direction);
+                if (recorder != null) {
+                    recorder.move(sequence, direction, decider.randomMove());
+                }
+
+                // The writer sends the move meanwhile, the renderer only snapshots the table here
+                renderer.render(decider.index(), decider.target());
+                metrics.record(Phase.RENDER, decider.decided());
+                metrics.endTick();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Planner failed", e);
+            closeQuietly(connection);
+        }
+    }
+
+    private void write(Connection connection, Handoff<Direction> moves, AtomicReference<IOException> failure) {
+        Direction direction;
+        while ((direction = moves.take()) != null) {
+            final var mark = System.nanoTime();
+            try {
+                connection.write(commands.move(direction));
+            } catch (IOException e) {
+                failure.set(e);
+                closeQuietly(connection);
+                return;
+            }
+            metrics.sample(Phase.SEND, System.nanoTime() - mark);
+            logger.debug("Sent command: {}", direction);
+        }
+    }
+
+    private static Path recordPath() {
+        final var recording = RECORDINGS.getAndIncrement();
+        return Path.of(recording == 0 ? RECORD : RECORD + "." + recording);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            logger.debug("Close failed", e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        var interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // One decoded StateLocations on its way from the reader to the planner
+    private static final class Tick {
+        private final LocationsBuffer locations;
+        private SharedCaves.Shared cave;
+        private int caveCount;     // StateCave messages so far, a new one may repeat the cave
+        private int self;
+        private long readNanos;
+        private long decodeNanos;
+        private int sequence;      // of the recorded locations, -1 when not recording
+
+        private Tick(LocationsBuffer locations) {
+            this.locations = locations;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package example;
+
+import example.domain.game.Direction;
+import example.path.Cells;
+import example.path.DistanceFields;
+import example.path.PathBuffer;
+import example.path.Planner;
+import example.path.Terrain;
+import example.state.GridIndex;
+
+import java.util.Collections;
+import java.util.List;
+
+// Where the player goes next, kept apart from the connection handling in Client so
+// benchmarks and simulations can call it directly. Close it once the session is over, the
+// anytime planner searches on a thread of its own.
+public final class Strategy implements AutoCloseable {
+    // -Dmazev.target.candidates: items nearest by Manhattan distance whose path length is looked
+    // up each tick, each one a distance field that has to stay cached to be cheap
+    private static final int CANDIDATES = Math.max(1, Integer.getInteger("mazev.target.candidates", 8));
+
+    private final Planner planner;
+    // The nearest candidates by Manhattan distance, closest first and the lower cell first on a tie
+    private final int[] candidateCells = new int[CANDIDATES];
+    private final int[] candidateDistances = new int[CANDIDATES];
+
+    public Strategy(Planner planner) {
+        this.planner = planner;
+    }
+
+    public Planner planner() {
+        return planner;
+    }
+
+    @Override
+    public void close() {
+        planner.close();
+    }
+
+    // Find the closest reachable gold (by path length around rocks)
+    // If there is no gold try to track the closest health
+    // Of items equally close the one on the lowest cell wins, whatever order the index lists
+    // them in: a GridIndex kept up by a StateTracker lists them in the order they arrived
+    public int findTargetGoldLocation(GridIndex index, DistanceFields fields, int myCell) {
+        final var gold = closest(index, fields, myCell, index.goldCount(), true);
+        return gold >= 0 ? gold : closest(index, fields, myCell, index.healthCount(), false);
+    }
+
+    private int closest(GridIndex index, DistanceFields fields, int myCell, int count, boolean gold) {
+        // More candidates than the fields cache holds would evict and rebuild fields every tick
+        final var limit = Math.min(CANDIDATES, fields.capacity());
+        var candidates = 0;
+        for (int i = 0; i < count; i++) {
+            final var cell = gold ? index.goldCell(i) : index.healthCell(i);
+            final var distance = Cells.distance(myCell, cell, index.columns());
+            if (candidates == limit && !before(distance, cell, candidateDistances[limit - 1], candidateCells[limit - 1])) {
+                continue;
+            }
+            var at = Math.min(candidates, limit - 1);
+            for (; at > 0 && before(distance, cell, candidateDistances[at - 1], candidateCells[at - 1]); at--) {
+                candidateCells[at] = candidateCells[at - 1];
+                candidateDistances[at] = candidateDistances[at - 1];
+            }
+            candidateCells[at] = cell;
+            candidateDistances[at] = distance;
+            candidates = Math.min(candidates + 1, limit);
+        }
+
+        var closest = -1;
+        var closestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates; i++) {
+            // Manhattan distance is a lower bound, no later candidate can beat the current best
+            if (candidateDistances[i] > closestDistance) {
+                break;
+            }
+            final var distance = fields.distance(candidateCells[i], myCell);
+            if (distance >= 0 && before(distance, candidateCells[i], closestDistance, closest)) {
+                closest = candidateCells[i];
+                closestDistance = distance;
+            }
+        }
+        // Items left out are at least as far as the last candidate. When none of the candidates
+        // is closer (all walled off, say), the rest are measured on the one field from this
+        // player's cell, a single search however many items there are.
+        if (candidates == limit && closestDistance >= candidateDistances[limit - 1]) {
+            for (int i = 0; i < count; i++) {
+                final var cell = gold ? index.goldCell(i) : index.healthCell(i);
+                if (!before(Cells.distance(myCell, cell, index.columns()), cell, closestDistance, closest)) {
+                    continue;
+                }
+                final var distance = fields.distance(myCell, cell);
+                if (distance >= 0 && before(distance, cell, closestDistance, closest)) {
+                    closest = cell;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    // Whether an item at this distance comes before the other one, the lower cell first on a tie
+    private static boolean before(int distance, int cell, int otherDistance, int otherCell) {
+        return distance < otherDistance || distance == otherDistance && cell < otherCell;
+    }
+
+    // Find path to target (gold or health) omitting rocks and other players if possible
+    public List<Direction> findPathToTarget(GridIndex index, int myCell, int targetGold) {
+        if (targetGold < 0) {
+            return Collections.emptyList();
+        }
+        return planner.findPath(index, myCell, targetGold);
+    }
+
+    // Same as above into a buffer kept from tick to tick, on the index or a view of it such
+    // as a ThreatMap
+    public void findPathToTarget(Terrain terrain, int myCell, int targetGold, PathBuffer path) {
+        if (targetGold < 0) {
+            path.clear();
+            return;
+        }
+        planner.findPath(terrain, myCell, targetGold, path);
+    }
+}
@@ -0,0 +1,189 @@
+package example.codec;
+
+import example.domain.Response;
+import example.domain.game.Item;
+import example.domain.game.Location;
+import example.domain.game.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// A StateLocations message kept in reusable parallel int arrays, refilled on every tick.
+// toResponse() builds the plain object view for code that is not on the hot path.
+public final class LocationsBuffer {
+    public static final int GOLD = 0;
+    public static final int HEALTH = 1;
+    public static final int HUMAN = 0;
+    public static final int DRAGON = 1;
+
+    private static final Player.Dragon.Size[] SIZES = Player.Dragon.Size.values();
+    private static final Player.Dragon[] DRAGONS = Arrays.stream(SIZES).map(Player.Dragon::new).toArray(Player.Dragon[]::new);
+
+    private final PlayerNames names;
+
+    private int[] itemType = new int[16];
+    private int[] itemId = new int[16];
+    private int[] itemValue = new int[16];
+    private int[] itemRow = new int[16];
+    private int[] itemColumn = new int[16];
+    private int itemCount;
+
+    private int[] playerType = new int[16];
+    private int[] playerValue = new int[16];   // name id for humans, size ordinal for dragons
+    private int[] playerRow = new int[16];
+    private int[] playerColumn = new int[16];
+    private int playerCount;
+
+    private boolean hasHealth;
+    private int health;
+    private boolean hasGold;
+    private int gold;
+
+    public LocationsBuffer(PlayerNames names) {
+        this.names = names;
+    }
+
+    void clear() {
+        itemCount = 0;
+        playerCount = 0;
+        hasHealth = false;
+        hasGold = false;
+    }
+
+    void addItem(int type, int id, int value, int row, int column) {
+        if (itemCount == itemType.length) {
+            final var length = itemCount * 2;
+            itemType = Arrays.copyOf(itemType, length);
+            itemId = Arrays.copyOf(itemId, length);
+            itemValue = Arrays.copyOf(itemValue, length);
+            itemRow = Arrays.copyOf(itemRow, length);
+            itemColumn = Arrays.copyOf(itemColumn, length);
+        }
+        itemType[itemCount] = type;
+        itemId[itemCount] = id;
+        itemValue[itemCount] = value;
+        itemRow[itemCount] = row;
+        itemColumn[itemCount] = column;
+        itemCount++;
+    }
+
+    void addPlayer(int type, int value, int row, int column) {
+        if (playerCount == playerType.length) {
+            final var length = playerCount * 2;
+            playerType = Arrays.copyOf(playerType, length);
+            playerValue = Arrays.copyOf(playerValue, length);
+            playerRow = Arrays.copyOf(playerRow, length);
+            playerColumn = Arrays.copyOf(playerColumn, length);
+        }
+        playerType[playerCount] = type;
+        playerValue[playerCount] = value;
+        playerRow[playerCount] = row;
+        playerColumn[playerCount] = column;
+        playerCount++;
+    }
+
+    void health(int health) {
+        this.hasHealth = true;
+        this.health = health;
+    }
+
+    void gold(int gold) {
+        this.hasGold = true;
+        this.gold = gold;
+    }
+
+    public PlayerNames names() {
+        return names;
+    }
+
+    public int itemCount() {
+        return itemCount;
+    }
+
+    public int itemType(int index) {
+        return itemType[index];
+    }
+
+    public int itemId(int index) {
+        return itemId[index];
+    }
+
+    public int itemValue(int index) {
+        return itemValue[index];
+    }
+
+    public int itemRow(int index) {
+        return itemRow[index];
+    }
+
+    public int itemColumn(int index) {
+        return itemColumn[index];
+    }
+
+    public int playerCount() {
+        return playerCount;
+    }
+
+    public int playerType(int index) {
+        return playerType[index];
+    }
+
+    // Interned name id of a human player, see names()
+    public int playerName(int index) {
+        return playerValue[index];
+    }
+
+    public Player.Dragon.Size dragonSize(int index) {
+        return SIZES[playerValue[index]];
+    }
+
+    public int playerRow(int index) {
+        return playerRow[index];
+    }
+
+    public int playerColumn(int index) {
+        return playerColumn[index];
+    }
+
+    public boolean hasHealth() {
+        return hasHealth;
+    }
+
+    public int health() {
+        return health;
+    }
+
+    public boolean hasGold() {
+        return hasGold;
+    }
+
+    public int gold() {
+        return gold;
+    }
+
+    public Player player(int index) {
+        return playerType[index] == HUMAN ? names.player(playerValue[index]) : DRAGONS[playerValue[index]];
+    }
+
+    public Item item(int index) {
+        return itemType[index] == GOLD ? new Item.Gold(itemId[index], itemValue[index]) : new Item.Health(itemId[index], itemValue[index]);
+    }
+
+    // The same message as Jackson data binding would have produced
+    public Response.StateLocations toResponse() {
+        final var itemLocations = new ArrayList<Response.StateLocations.ItemLocation>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            itemLocations.add(new Response.StateLocations.ItemLocation(item(i), new Location(itemRow[i], itemColumn[i])));
+        }
+        final var playerLocations = new ArrayList<Response.StateLocations.PlayerLocation>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            playerLocations.add(new Response.StateLocations.PlayerLocation(player(i), new Location(playerRow[i], playerColumn[i])));
+        }
+        return new Response.StateLocations(itemLocations, playerLocations, hasHealth ? health : null, hasGold ? gold : null);
+    }
+
+    @Override
+    public String toString() {
+        return toResponse().toString();
+    }
+}
@@ -0,0 +1,108 @@
+package example.codec;
+
+import example.domain.game.Player;
+
+import java.util.Arrays;
+
+// Interns HumanPlayer names straight from parser characters, so a name seen before costs
+// a hash and a compare instead of a new String and a new HumanPlayer every tick
+public final class PlayerNames {
+    private Player.HumanPlayer[] players = new Player.HumanPlayer[64];
+    private int[] hashes = new int[64];
+    private int[] slots = new int[128];   // open addressing table of id + 1, 0 when empty
+    private int count;
+
+    public PlayerNames() {
+    }
+
+    // Id of the name held in chars[offset, offset + length), registering it on first sight
+    public int intern(char[] chars, int offset, int length) {
+        var hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        final var mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            final var id = slots[slot] - 1;
+            if (id < 0) {
+                return add(new String(chars, offset, length), hash, slot);
+            }
+            if (hashes[id] == hash && matches(players[id].name(), chars, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    public int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    // Id of a name, -1 if it was never interned
+    public int find(String name) {
+        if (name == null) {
+            return -1;
+        }
+        final var hash = name.hashCode();
+        final var mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            final var id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && players[id].name().equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    public Player.HumanPlayer player(int id) {
+        return players[id];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int add(String name, int hash, int slot) {
+        final var id = count++;
+        if (id == players.length) {
+            players = Arrays.copyOf(players, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        players[id] = new Player.HumanPlayer(name);
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (count * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        final var mask = slots.length - 1;
+        for (int id = 0; id < count; id++) {
+            var slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,339 @@
+package example.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.domain.Response;
+import example.domain.game.Item;
+import example.domain.game.Player;
+
+import java.io.IOException;
+
+// Decodes Response messages with the streaming JsonParser. StateLocations, sent every tick,
+// are written straight into a reusable LocationsBuffer; every other message (and any
+// StateLocations laid out differently from what Jackson itself writes, e.g. with "type" not
+// first) goes through ObjectMapper, so both paths accept exactly the same JSON.
+public final class ResponseDecoder {
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+    private static final Player.Dragon.Size[] SIZES = Player.Dragon.Size.values();
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory factory;
+    private LocationsBuffer locations;
+    private Response response;
+
+    public ResponseDecoder(ObjectMapper objectMapper) {
+        this(objectMapper, new PlayerNames());
+    }
+
+    public ResponseDecoder(ObjectMapper objectMapper, PlayerNames names) {
+        this.objectMapper = objectMapper;
+        this.factory = objectMapper.getFactory();
+        this.locations = new LocationsBuffer(names);
+    }
+
+    // True when the message was a StateLocations, now held in locations(); otherwise see response()
+    public boolean decode(String line) throws IOException {
+        try (final var parser = factory.createParser(line)) {
+            if (decodeLocations(parser)) {
+                return true;
+            }
+        } catch (Unsupported e) {
+            // Not laid out the way Jackson writes it, let data binding decide
+        }
+        return bind(objectMapper.readValue(line, Response.class));
+    }
+
+    public boolean decode(byte[] data, int offset, int length) throws IOException {
+        try (final var parser = factory.createParser(data, offset, length)) {
+            if (decodeLocations(parser)) {
+                return true;
+            }
+        } catch (Unsupported e) {
+            // Not laid out the way Jackson writes it, let data binding decide
+        }
+        return bind(objectMapper.readValue(data, offset, length, Response.class));
+    }
+
+    public LocationsBuffer locations() {
+        return locations;
+    }
+
+    // Where the following StateLocations are written, so a consumer can keep the previous one
+    public void locations(LocationsBuffer locations) {
+        this.locations = locations;
+    }
+
+    // Last message that was not a StateLocations
+    public Response response() {
+        return response;
+    }
+
+    private boolean bind(Response response) {
+        if (response instanceof Response.StateLocations stateLocations) {
+            fill(stateLocations);
+            return true;
+        }
+        this.response = response;
+        return false;
+    }
+
+    private void fill(Response.StateLocations stateLocations) {
+        locations.clear();
+        if (stateLocations.itemLocations() != null) {
+            for (final var entry : stateLocations.itemLocations()) {
+                switch (entry.entity()) {
+                    case Item.Gold gold -> locations.addItem(LocationsBuffer.GOLD, gold.id(), gold.value(), entry.location().row(), entry.location().column());
+                    case Item.Health health -> locations.addItem(LocationsBuffer.HEALTH, health.id(), health.value(), entry.location().row(), entry.location().column());
+                }
+            }
+        }
+        if (stateLocations.playerLocations() != null) {
+            for (final var entry : stateLocations.playerLocations()) {
+                switch (entry.entity()) {
+                    case Player.HumanPlayer humanPlayer -> locations.addPlayer(LocationsBuffer.HUMAN, locations.names().intern(humanPlayer.name()), entry.location().row(), entry.location().column());
+                    case Player.Dragon dragon -> locations.addPlayer(LocationsBuffer.DRAGON, dragon.size().ordinal(), entry.location().row(), entry.location().column());
+                }
+            }
+        }
+        if (stateLocations.health() != null) {
+            locations.health(stateLocations.health());
+        }
+        if (stateLocations.gold() != null) {
+            locations.gold(stateLocations.gold());
+        }
+    }
+
+    private boolean decodeLocations(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        expect(parser.nextToken(), JsonToken.FIELD_NAME);
+        if (!"type".equals(parser.currentName())) {
+            throw UNSUPPORTED;
+        }
+        expect(parser.nextToken(), JsonToken.VALUE_STRING);
+        if (singleChar(parser) != 'L') {
+            return false;
+        }
+
+        locations.clear();
+        var items = false;
+        var players = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            switch (parser.currentName()) {
+                case "itemLocations" -> {
+                    expect(parser.nextToken(), JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        decodeItemLocation(parser);
+                    }
+                    expect(parser.currentToken(), JsonToken.END_ARRAY);
+                    items = true;
+                }
+                case "playerLocations" -> {
+                    expect(parser.nextToken(), JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        decodePlayerLocation(parser);
+                    }
+                    expect(parser.currentToken(), JsonToken.END_ARRAY);
+                    players = true;
+                }
+                case "health" -> {
+                    if (parser.nextToken() != JsonToken.VALUE_NULL) {
+                        locations.health(intValue(parser));
+                    }
+                }
+                case "gold" -> {
+                    if (parser.nextToken() != JsonToken.VALUE_NULL) {
+                        locations.gold(intValue(parser));
+                    }
+                }
+                default -> throw UNSUPPORTED;
+            }
+        }
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+        if (!items || !players) {
+            throw UNSUPPORTED;
+        }
+        return true;
+    }
+
+    private void decodeItemLocation(JsonParser parser) throws IOException {
+        var type = 0;
+        var id = 0;
+        var value = 0;
+        var row = -1;
+        var column = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            switch (parser.currentName()) {
+                case "entity" -> {
+                    expect(parser.nextToken(), JsonToken.START_OBJECT);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        switch (parser.currentName()) {
+                            case "type" -> {
+                                expect(parser.nextToken(), JsonToken.VALUE_STRING);
+                                type = type(parser, type);
+                            }
+                            case "id" -> {
+                                parser.nextToken();
+                                id = intValue(parser);
+                            }
+                            case "value" -> {
+                                parser.nextToken();
+                                value = intValue(parser);
+                            }
+                            default -> throw UNSUPPORTED;
+                        }
+                    }
+                }
+                case "location" -> {
+                    expect(parser.nextToken(), JsonToken.START_OBJECT);
+                    final var location = decodeLocation(parser);
+                    row = (int) (location >> 32);
+                    column = (int) location;
+                }
+                default -> throw UNSUPPORTED;
+            }
+        }
+        if (row < 0) {
+            throw UNSUPPORTED;
+        }
+        switch (type) {
+            case 'G' -> locations.addItem(LocationsBuffer.GOLD, id, value, row, column);
+            case 'H' -> locations.addItem(LocationsBuffer.HEALTH, id, value, row, column);
+            default -> throw UNSUPPORTED;
+        }
+    }
+
+    private void decodePlayerLocation(JsonParser parser) throws IOException {
+        var type = 0;
+        var value = -1;
+        var row = -1;
+        var column = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            switch (parser.currentName()) {
+                case "entity" -> {
+                    expect(parser.nextToken(), JsonToken.START_OBJECT);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        switch (parser.currentName()) {
+                            case "type" -> {
+                                expect(parser.nextToken(), JsonToken.VALUE_STRING);
+                                type = type(parser, type);
+                            }
+                            case "name" -> {
+                                // Only a human has a name, databind turns it down on a dragon
+                                expect(type, 'P');
+                                expect(parser.nextToken(), JsonToken.VALUE_STRING);
+                                value = locations.names().intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                            }
+                            case "size" -> {
+                                expect(type, 'D');
+                                expect(parser.nextToken(), JsonToken.VALUE_STRING);
+                                value = size(parser);
+                            }
+                            default -> throw UNSUPPORTED;
+                        }
+                    }
+                }
+                case "location" -> {
+                    expect(parser.nextToken(), JsonToken.START_OBJECT);
+                    final var location = decodeLocation(parser);
+                    row = (int) (location >> 32);
+                    column = (int) location;
+                }
+                default -> throw UNSUPPORTED;
+            }
+        }
+        // A human must come with a name and a dragon with a size, anything else is left to data binding
+        if (row < 0 || value < 0) {
+            throw UNSUPPORTED;
+        }
+        switch (type) {
+            case 'P' -> locations.addPlayer(LocationsBuffer.HUMAN, value, row, column);
+            case 'D' -> locations.addPlayer(LocationsBuffer.DRAGON, value, row, column);
+            default -> throw UNSUPPORTED;
+        }
+    }
+
+    // Row and column packed into a long
+    private static long decodeLocation(JsonParser parser) throws IOException {
+        var row = -1;
+        var column = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            switch (parser.currentName()) {
+                case "row" -> {
+                    parser.nextToken();
+                    row = intValue(parser);
+                }
+                case "column" -> {
+                    parser.nextToken();
+                    column = intValue(parser);
+                }
+                default -> throw UNSUPPORTED;
+            }
+        }
+        if (row < 0 || column < 0) {
+            throw UNSUPPORTED;
+        }
+        return ((long) row << 32) | column;
+    }
+
+    private static int size(JsonParser parser) throws IOException {
+        final var chars = parser.getTextCharacters();
+        final var offset = parser.getTextOffset();
+        final var length = parser.getTextLength();
+        for (final var size : SIZES) {
+            final var name = size.name();
+            if (name.length() == length && matches(name, chars, offset)) {
+                return size.ordinal();
+            }
+        }
+        throw UNSUPPORTED;
+    }
+
+    private static boolean matches(String name, char[] chars, int offset) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The entity's type, which has to come once and before the fields that depend on it
+    private static int type(JsonParser parser, int previous) throws IOException {
+        if (previous != 0) {
+            throw UNSUPPORTED;
+        }
+        return singleChar(parser);
+    }
+
+    private static int singleChar(JsonParser parser) throws IOException {
+        return parser.getTextLength() == 1 ? parser.getTextCharacters()[parser.getTextOffset()] : 0;
+    }
+
+    private static int intValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT) {
+            throw UNSUPPORTED;
+        }
+        return parser.getIntValue();
+    }
+
+    private static void expect(int type, int expected) {
+        if (type != expected) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    // Thrown when the message is not laid out the way the streaming path expects
+    private static final class Unsupported extends RuntimeException {
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
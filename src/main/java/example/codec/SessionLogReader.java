@@ -0,0 +1,219 @@
+package example.codec;
+
+import example.domain.game.BitCave;
+import example.domain.game.Direction;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Reads a SessionLogWriter log from a memory-mapped file, one record per next(). Locations
+// are decoded into a buffer owned by the reader and refilled by every LOCATIONS record, the
+// same way ResponseDecoder refills its buffer, so reading a log allocates nothing per tick.
+public final class SessionLogReader {
+    public static final int END = -1;
+    public static final int AUTHORIZE = SessionLogWriter.AUTHORIZE;
+    public static final int AUTHORIZED = SessionLogWriter.AUTHORIZED;
+    public static final int UNAUTHORIZED = SessionLogWriter.UNAUTHORIZED;
+    public static final int CAVE = SessionLogWriter.CAVE;
+    public static final int CAVE_AGAIN = SessionLogWriter.CAVE_AGAIN;
+    public static final int NAME = SessionLogWriter.NAME;
+    public static final int LOCATIONS = SessionLogWriter.LOCATIONS;
+    public static final int MOVE = SessionLogWriter.MOVE;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final MappedByteBuffer buffer;
+    private final PlayerNames names = new PlayerNames();
+    private final LocationsBuffer locations = new LocationsBuffer(names);
+    private final SessionLogWriter.Delta items = new SessionLogWriter.Delta(4);
+    private final SessionLogWriter.Delta players = new SessionLogWriter.Delta(3);
+
+    private long nanos;
+    private String name;
+    private BitCave cave;
+    private int self;
+    private int health;
+    private int gold;
+    private int sequence = -1;
+    private int read;             // LOCATIONS records so far
+    private Direction direction;
+    private boolean random;
+
+    private SessionLogReader(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        final var magic = new byte[SessionLogWriter.MAGIC.length];
+        if (buffer.remaining() < magic.length + 1) {
+            throw new IllegalArgumentException("Not a session log");
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, SessionLogWriter.MAGIC)) {
+            throw new IllegalArgumentException("Not a session log");
+        }
+        final var version = buffer.get();
+        if (version != SessionLogWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported session log version " + version);
+        }
+    }
+
+    // Logs over 2 GiB cannot be mapped in one piece and are rejected
+    public static SessionLogReader open(Path path) throws IOException {
+        try (final var channel = FileChannel.open(path)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Session log too large: " + path);
+            }
+            return new SessionLogReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Reads the next record and returns its kind, END after the last one. A log cut short by
+    // a crash ends at its last whole record.
+    public int next() {
+        if (!buffer.hasRemaining()) {
+            return END;
+        }
+        final var start = buffer.position();
+        try {
+            final var kind = buffer.get();
+            nanos += getVarlong();
+            switch (kind) {
+                case SessionLogWriter.AUTHORIZE, SessionLogWriter.UNAUTHORIZED, SessionLogWriter.CAVE_AGAIN -> {
+                }
+                case SessionLogWriter.AUTHORIZED -> name = getString();
+                case SessionLogWriter.CAVE -> readCave();
+                case SessionLogWriter.NAME -> {
+                    final var id = getVarint();
+                    final var interned = names.intern(getString());
+                    if (interned != id) {
+                        throw new IllegalStateException("Name " + id + " read as " + interned);
+                    }
+                }
+                case SessionLogWriter.LOCATIONS -> readLocations();
+                case SessionLogWriter.MOVE -> {
+                    sequence = getVarint();
+                    final var move = buffer.get();
+                    direction = DIRECTIONS[move & ~SessionLogWriter.RANDOM];
+                    random = (move & SessionLogWriter.RANDOM) != 0;
+                }
+                default -> throw new IllegalStateException("Unknown record " + kind + " at " + start);
+            }
+            return kind;
+        } catch (BufferUnderflowException e) {
+            buffer.position(buffer.limit());
+            return END;
+        }
+    }
+
+    // Since the first record
+    public long nanos() {
+        return nanos;
+    }
+
+    // Of the last AUTHORIZED
+    public String name() {
+        return name;
+    }
+
+    // Of the last CAVE
+    public BitCave cave() {
+        return cave;
+    }
+
+    // Of the last LOCATIONS
+    public LocationsBuffer locations() {
+        return locations;
+    }
+
+    // Name id of the player in the last LOCATIONS, -1 when it was not known
+    public int self() {
+        return self;
+    }
+
+    // Of the last LOCATIONS, or the LOCATIONS the last MOVE was decided on
+    public int sequence() {
+        return sequence;
+    }
+
+    // Of the last MOVE
+    public Direction direction() {
+        return direction;
+    }
+
+    public boolean random() {
+        return random;
+    }
+
+    private void readCave() {
+        final var rows = getVarint();
+        final var columns = getVarint();
+        final var bits = new byte[(rows * columns + 7) / 8];
+        buffer.get(bits);
+        cave = BitCave.of(rows, columns, cell -> (bits[cell >>> 3] & 1 << (cell & 7)) != 0);
+    }
+
+    private void readLocations() {
+        sequence = read++;
+        self = SessionLogWriter.unzigzag(getVarint());
+        health += SessionLogWriter.unzigzag(getVarint());
+        gold += SessionLogWriter.unzigzag(getVarint());
+        final var flags = buffer.get();
+        locations.clear();
+        if ((flags & SessionLogWriter.HAS_HEALTH) != 0) {
+            locations.health(health);
+        }
+        if ((flags & SessionLogWriter.HAS_GOLD) != 0) {
+            locations.gold(gold);
+        }
+
+        final var itemCount = getVarint();
+        items.ensure(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            final var type = buffer.get();
+            locations.addItem(type, get(items, i, 0), get(items, i, 1), get(items, i, 2), get(items, i, 3));
+        }
+        final var playerCount = getVarint();
+        players.ensure(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            final var type = buffer.get();
+            locations.addPlayer(type, get(players, i, 0), get(players, i, 1), get(players, i, 2));
+        }
+    }
+
+    private int get(SessionLogWriter.Delta delta, int index, int field) {
+        final var at = index * delta.fields + field;
+        delta.values[at] += SessionLogWriter.unzigzag(getVarint());
+        return delta.values[at];
+    }
+
+    private String getString() {
+        final var bytes = new byte[getVarint()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getVarint() {
+        var value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final var b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private long getVarlong() {
+        var value = 0L;
+        for (int shift = 0; ; shift += 7) {
+            final var b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
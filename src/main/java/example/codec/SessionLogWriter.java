@@ -0,0 +1,270 @@
+package example.codec;
+
+import example.domain.game.BitCave;
+import example.domain.game.Direction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Appends what a session received and decided to a compact binary log for SessionLogReader.
+//
+//   header:  "MZVLOG" version(1)
+//   record:  kind(1) nanosSincePreviousRecord(varint) payload
+//
+//   AUTHORIZE     nothing, the key is never written
+//   AUTHORIZED    name(string)
+//   UNAUTHORIZED  nothing
+//   CAVE          rows(varint) columns(varint) rocks, one bit per cell in cell order
+//   CAVE_AGAIN    nothing, the same cave as the last CAVE
+//   NAME          id(varint) name(string), before the first LOCATIONS with that name id
+//   LOCATIONS     self(zigzag) health(zigzag delta) gold(zigzag delta) flags(1)
+//                 items(varint) [type(1) id value row column, each a zigzag delta]
+//                 players(varint) [type(1) value row column, each a zigzag delta]
+//   MOVE          sequence(varint) direction ordinal, | 0x80 for a random move (1)
+//
+// Deltas are against the entry at the same position of the previous LOCATIONS, which the
+// server mostly sends in the same order, so a player that took one step costs four bytes.
+// LOCATIONS records are numbered from 0 in order; MOVE names the one it was decided on.
+// Strings are a varint length and UTF-8. All methods may be called from any thread.
+// Records are buffered and written out with every LOCATIONS, one write a tick, so a session
+// that is killed loses at most the move decided on its last state.
+public final class SessionLogWriter implements AutoCloseable {
+    static final byte[] MAGIC = "MZVLOG".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 1;
+
+    static final byte AUTHORIZE = 1;
+    static final byte AUTHORIZED = 2;
+    static final byte UNAUTHORIZED = 3;
+    static final byte CAVE = 4;
+    static final byte CAVE_AGAIN = 5;
+    static final byte NAME = 6;
+    static final byte LOCATIONS = 7;
+    static final byte MOVE = 8;
+
+    static final int HAS_HEALTH = 1;
+    static final int HAS_GOLD = 2;
+    static final int RANDOM = 0x80;
+
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+    private long last = System.nanoTime();
+    private BitCave cave;
+    private int names;
+    private int sequence;
+
+    // The previous LOCATIONS, deltas are taken against it
+    private final Delta items = new Delta(4);
+    private final Delta players = new Delta(3);
+    private int health;
+    private int gold;
+
+    private SessionLogWriter(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.put(MAGIC).put(VERSION);
+    }
+
+    public static SessionLogWriter open(Path path) throws IOException {
+        return new SessionLogWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public void authorize() throws IOException {
+        lock.lock();
+        try {
+            record(AUTHORIZE, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void authorized(String name) throws IOException {
+        lock.lock();
+        try {
+            final var bytes = name.getBytes(StandardCharsets.UTF_8);
+            record(AUTHORIZED, 5 + bytes.length);
+            putVarint(bytes.length);
+            buffer.put(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unauthorized() throws IOException {
+        lock.lock();
+        try {
+            record(UNAUTHORIZED, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cave(BitCave cave) throws IOException {
+        lock.lock();
+        try {
+            if (cave.equals(this.cave)) {
+                record(CAVE_AGAIN, 0);
+                return;
+            }
+            this.cave = cave;
+            final var cells = cave.rows() * cave.columns();
+            record(CAVE, 10 + (cells + 7) / 8);
+            putVarint(cave.rows());
+            putVarint(cave.columns());
+            for (int cell = 0; cell < cells; cell += 8) {
+                var bits = 0;
+                for (int bit = 0; bit < 8 && cell + bit < cells; bit++) {
+                    if (cave.rock(cell + bit)) {
+                        bits |= 1 << bit;
+                    }
+                }
+                buffer.put((byte) bits);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the sequence number of the record, for move()
+    public int locations(LocationsBuffer locations, int self) throws IOException {
+        lock.lock();
+        try {
+            final var names = locations.names();
+            while (this.names < names.size()) {
+                final var bytes = names.player(this.names).name().getBytes(StandardCharsets.UTF_8);
+                record(NAME, 10 + bytes.length);
+                putVarint(this.names++);
+                putVarint(bytes.length);
+                buffer.put(bytes);
+            }
+
+            final var itemCount = locations.itemCount();
+            final var playerCount = locations.playerCount();
+            record(LOCATIONS, 26 + itemCount * 21 + playerCount * 16);
+            putVarint(zigzag(self));
+            putVarint(zigzag(locations.health() - health));
+            putVarint(zigzag(locations.gold() - gold));
+            buffer.put((byte) ((locations.hasHealth() ? HAS_HEALTH : 0) | (locations.hasGold() ? HAS_GOLD : 0)));
+            health = locations.health();
+            gold = locations.gold();
+
+            putVarint(itemCount);
+            items.ensure(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                buffer.put((byte) locations.itemType(i));
+                put(items, i, 0, locations.itemId(i));
+                put(items, i, 1, locations.itemValue(i));
+                put(items, i, 2, locations.itemRow(i));
+                put(items, i, 3, locations.itemColumn(i));
+            }
+            putVarint(playerCount);
+            players.ensure(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                buffer.put((byte) locations.playerType(i));
+                put(players, i, 0, locations.playerName(i));
+                put(players, i, 1, locations.playerRow(i));
+                put(players, i, 2, locations.playerColumn(i));
+            }
+            flush();
+            return sequence++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void move(int sequence, Direction direction, boolean random) throws IOException {
+        lock.lock();
+        try {
+            record(MOVE, 6);
+            putVarint(sequence);
+            buffer.put((byte) (direction.ordinal() | (random ? RANDOM : 0)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            flush();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Starts a record of at most size payload bytes
+    private void record(byte kind, int size) throws IOException {
+        final var needed = 11 + size;
+        if (buffer.remaining() < needed) {
+            flush();
+            if (buffer.capacity() < needed) {
+                buffer = ByteBuffer.allocate(needed);
+            }
+        }
+        final var now = System.nanoTime();
+        buffer.put(kind);
+        putVarlong(now - last);
+        last = now;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void put(Delta delta, int index, int field, int value) {
+        final var at = index * delta.fields + field;
+        putVarint(zigzag(value - delta.values[at]));
+        delta.values[at] = value;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void putVarlong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int zigzag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    // Fields of every entry of the previous LOCATIONS, 0 past its end
+    static final class Delta {
+        final int fields;
+        int[] values = new int[0];
+
+        Delta(int fields) {
+            this.fields = fields;
+        }
+
+        void ensure(int entries) {
+            if (entries * fields > values.length) {
+                values = Arrays.copyOf(values, Math.max(entries * fields, values.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package example.domain.game;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Cave with rocks packed one bit per cell, each row padded to whole 64-bit words.
+// A transposed copy (one bit per row, each column padded) makes vertical scans word-parallel too.
+// Padding bits are set, so beyond the edge of the cave looks like rock.
+public final class BitCave implements Cave {
+    private final int rows;
+    private final int columns;
+    private final int rowWords;
+    private final int columnWords;
+    private final long[] rocks;       // rocks[row * rowWords + column / 64]
+    private final long[] transposed;  // transposed[column * columnWords + row / 64]
+
+    private BitCave(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.rowWords = (columns + 63) >>> 6;
+        this.columnWords = (rows + 63) >>> 6;
+        this.rocks = new long[rows * rowWords];
+        this.transposed = new long[columns * columnWords];
+        pad(rocks, rows, rowWords, columns);
+        pad(transposed, columns, columnWords, rows);
+    }
+
+    public static BitCave of(Cave cave) {
+        if (cave instanceof BitCave bitCave) {
+            return bitCave;
+        }
+        final var bitCave = new BitCave(cave.rows(), cave.columns());
+        if (cave instanceof SimpleCave simpleCave) {
+            for (int cell = 0; cell < simpleCave.rocks.length; cell++) {
+                if (simpleCave.rocks[cell]) {
+                    bitCave.setRock(cell / simpleCave.columns, cell % simpleCave.columns);
+                }
+            }
+        } else {
+            for (int row = 0; row < cave.rows(); row++) {
+                for (int column = 0; column < cave.columns(); column++) {
+                    if (cave.rock(row, column)) {
+                        bitCave.setRock(row, column);
+                    }
+                }
+            }
+        }
+        return bitCave;
+    }
+
+    // A cave of this shape with rock on the cells (row * columns + column) the predicate accepts
+    public static BitCave of(int rows, int columns, IntPredicate rock) {
+        final var bitCave = new BitCave(rows, columns);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (rock.test(row * columns + column)) {
+                    bitCave.setRock(row, column);
+                }
+            }
+        }
+        return bitCave;
+    }
+
+    private static void pad(long[] words, int lines, int lineWords, int length) {
+        final var used = length & 63;
+        if (used == 0) {
+            return;
+        }
+        for (int line = 0; line < lines; line++) {
+            words[line * lineWords + lineWords - 1] |= -1L << used;
+        }
+    }
+
+    private void setRock(int row, int column) {
+        rocks[row * rowWords + (column >>> 6)] |= 1L << column;
+        transposed[column * columnWords + (row >>> 6)] |= 1L << row;
+    }
+
+    @Override
+    public boolean rock(int row, int column) {
+        return (rocks[row * rowWords + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    public boolean rock(int cell) {
+        return rock(cell / columns, cell % columns);
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int columns() {
+        return columns;
+    }
+
+    // Free cells of 64 consecutive columns of a row starting at column word * 64, bit i for column word * 64 + i
+    public long freeWord(int row, int word) {
+        return ~rocks[row * rowWords + word];
+    }
+
+    public int rowWords() {
+        return rowWords;
+    }
+
+    // Copies the rock words, rowWords() per row with the padding bits set, to the start of words.
+    // A flood fill can start from this and spread a whole word of cells per step by shifting it
+    // one column either way or moving it one row up or down.
+    public void copyRocks(long[] words) {
+        System.arraycopy(rocks, 0, words, 0, rocks.length);
+    }
+
+    // Number of free cells right of the cell before the first rock or the edge
+    public int freeRunRight(int row, int column) {
+        return runForward(rocks, row * rowWords, rowWords, column + 1);
+    }
+
+    // Number of free cells left of the cell before the first rock or the edge
+    public int freeRunLeft(int row, int column) {
+        return runBackward(rocks, row * rowWords, column - 1);
+    }
+
+    // Number of free cells below the cell before the first rock or the edge
+    public int freeRunDown(int row, int column) {
+        return runForward(transposed, column * columnWords, columnWords, row + 1);
+    }
+
+    // Number of free cells above the cell before the first rock or the edge
+    public int freeRunUp(int row, int column) {
+        return runBackward(transposed, column * columnWords, row - 1);
+    }
+
+    private static int runForward(long[] words, int base, int lineWords, int from) {
+        var word = from >>> 6;
+        if (word >= lineWords) {
+            return 0;
+        }
+        var bits = words[base + word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == lineWords) {
+                // Only reached when the length is a multiple of 64 and there is no padding
+                return lineWords * 64 - from;
+            }
+            bits = words[base + word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits) - from;
+    }
+
+    private static int runBackward(long[] words, int base, int from) {
+        if (from < 0) {
+            return 0;
+        }
+        var word = from >>> 6;
+        var bits = words[base + word] & (-1L >>> (63 - (from & 63)));
+        while (bits == 0) {
+            if (--word < 0) {
+                return from + 1;
+            }
+            bits = words[base + word];
+        }
+        return from - ((word << 6) + 63 - Long.numberOfLeadingZeros(bits));
+    }
+
+    public int passableCount() {
+        var count = 0;
+        for (final var word : rocks) {
+            count += Long.bitCount(~word);
+        }
+        return count;
+    }
+
+    // Calls the action with the cell index (row * columns + column) of every free cell
+    public void forEachPassable(IntConsumer action) {
+        for (int row = 0; row < rows; row++) {
+            for (int word = 0; word < rowWords; word++) {
+                var bits = ~rocks[row * rowWords + word];
+                while (bits != 0) {
+                    action.accept(row * columns + (word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    // Cell indexes of every free cell in row-major order
+    public PrimitiveIterator.OfInt passableCells() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = -1;
+            private long bits;
+
+            @Override
+            public boolean hasNext() {
+                while (bits == 0) {
+                    if (++index == rocks.length) {
+                        index--;
+                        return false;
+                    }
+                    bits = ~rocks[index];
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final var bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                return (index / rowWords) * columns + ((index % rowWords) << 6) + bit;
+            }
+        };
+    }
+
+    // Memory held by both bitsets
+    public long bytes() {
+        return 8L * (rocks.length + transposed.length);
+    }
+
+    // Equal when the rocks are, so the same map sent to several sessions can be shared
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitCave bitCave)) return false;
+        return rows == bitCave.rows && columns == bitCave.columns && Arrays.equals(rocks, bitCave.rocks);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + columns) + Arrays.hashCode(rocks);
+    }
+}
@@ -1,7 +1,5 @@
 package example.domain.game;
 
-import java.util.Objects;
-
 public record Location(int row, int column) {
     @Override
     public boolean equals(Object o) {
@@ -11,8 +9,9 @@ public record Location(int row, int column) {
         return row == location.row && column == location.column;
     }
 
+    // Same value as Objects.hash(row, column) without boxing both into a varargs array
     @Override
     public int hashCode() {
-        return Objects.hash(row, column);
+        return 31 * (31 + row) + column;
     }
 }
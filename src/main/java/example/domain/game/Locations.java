@@ -0,0 +1,51 @@
+package example.domain.game;
+
+// One shared Location per cell of a cave, cell = row * columns + column, made on first use.
+// Walking the cave in Location terms then allocates nothing after the first visit to a cell.
+// Threads racing on a cell may each make one; they are equal, so only identity can differ.
+public final class Locations {
+    private final int rows;
+    private final int columns;
+    private final Location[] table;
+
+    public Locations(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.table = new Location[rows * columns];
+    }
+
+    public static Locations of(Cave cave) {
+        return new Locations(cave.rows(), cave.columns());
+    }
+
+    // Null outside the cave
+    public Location at(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return null;
+        }
+        return at(row * columns + column);
+    }
+
+    public Location at(int cell) {
+        final var location = table[cell];
+        if (location != null) {
+            return location;
+        }
+        final var row = cell / columns;
+        return table[cell] = new Location(row, cell - row * columns);
+    }
+
+    public int cell(Location location) {
+        return location.row() * columns + location.column();
+    }
+
+    // One step away in the direction, null outside the cave
+    public Location neighbour(Location location, Direction direction) {
+        return switch (direction) {
+            case Up -> at(location.row() - 1, location.column());
+            case Down -> at(location.row() + 1, location.column());
+            case Left -> at(location.row(), location.column() - 1);
+            case Right -> at(location.row(), location.column() + 1);
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package example.domain.game;
 
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public final class SimpleCave implements Cave {
     public final int columns;
@@ -14,14 +15,18 @@ public final class SimpleCave implements Cave {
     }
 
     public SimpleCave(int rows, int columns) {
+        this(rows, columns, ThreadLocalRandom.current());
+    }
+
+    // The same random generator state always gives the same cave
+    public SimpleCave(int rows, int columns, RandomGenerator random) {
         this.columns = columns;
         this.rows = rows;
         this.rocks = new boolean[columns * rows];
-        initialize();
+        initialize(random);
     }
 
-    private void initialize() {
-        final var rg = ThreadLocalRandom.current();
+    private void initialize(RandomGenerator rg) {
         for (int row = 0; row < rows(); row++) {
             for (int column = 0; column < columns(); column++) {
                 set(row, column, !(0 < column && column < columns() - 1 && 0 < row && row < rows() - 1 && rg.nextFloat() < 0.8));
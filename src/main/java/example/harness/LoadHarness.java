@@ -0,0 +1,116 @@
+package example.harness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.Session;
+import example.Strategy;
+import example.metrics.Histogram;
+import example.metrics.TickMetrics;
+import example.net.ReconnectPolicy;
+import example.path.Planner;
+import example.render.HeadlessRenderer;
+import example.state.SharedCaves;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs many bots in one JVM, each Session on its own virtual thread, sharing one ObjectMapper
+// and the caves (with their distance fields) of bots that join the same map. Every interval
+// it logs the aggregate ticks per second and the spread of the per-session p99 decision time.
+//
+//   -Dmazev.harness.bots=200 -Dmazev.harness.keyPrefix=bot-   keys bot-0..bot-199 on -Dmazev.host/-Dmazev.port
+//   -Dmazev.harness.sessions=host:port:key,host:port:key      explicit endpoints instead
+//   -Dmazev.harness.seconds=60 (0 runs until killed) -Dmazev.harness.interval=5
+public final class LoadHarness {
+    private static final Logger logger = LoggerFactory.getLogger(LoadHarness.class);
+    private static final long DISTANCE_FIELDS_MAX_BYTES = Long.getLong("mazev.fields.maxBytes", 64L << 20);
+
+    private record Bot(Session session, Thread thread) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var endpoints = endpoints();
+        final var seconds = Long.getLong("mazev.harness.seconds", 60);
+        final var intervalMillis = Long.getLong("mazev.harness.interval", 5) * 1000;
+
+        final var objectMapper = new ObjectMapper();
+        final var caves = new SharedCaves(DISTANCE_FIELDS_MAX_BYTES);
+        final var renderer = new HeadlessRenderer();
+        final var bots = new ArrayList<Bot>(endpoints.size());
+        for (final var endpoint : endpoints) {
+            final var session = new Session(endpoint, objectMapper, caves, new Strategy(Planner.fromProperties()),
+                    new TickMetrics(0, Boolean.getBoolean("mazev.metrics.jfr")), renderer, ReconnectPolicy.fromProperties());
+            final var thread = Thread.ofVirtual().name("bot-" + endpoint.key()).start(session);
+            bots.add(new Bot(session, thread));
+        }
+        logger.info("Started {} sessions", bots.size());
+
+        final var deadline = seconds > 0 ? System.nanoTime() + seconds * 1_000_000_000L : Long.MAX_VALUE;
+        final var snapshot = new Histogram.Snapshot();
+        final var p99s = new long[bots.size()];
+        var reportedTicks = 0L;
+        var reportedAt = System.nanoTime();
+        while (System.nanoTime() < deadline && bots.stream().anyMatch(bot -> bot.thread.isAlive())) {
+            Thread.sleep(intervalMillis);
+            final var now = System.nanoTime();
+            var ticks = 0L;
+            var alive = 0;
+            var worst = 0;
+            for (int i = 0; i < bots.size(); i++) {
+                final var bot = bots.get(i);
+                ticks += bot.session.metrics().ticks();
+                alive += bot.thread.isAlive() ? 1 : 0;
+                bot.session.metrics().drainDecisions(snapshot);
+                p99s[i] = snapshot.quantile(0.99);
+                if (p99s[i] > p99s[worst]) {
+                    worst = i;
+                }
+                logger.debug("{}: ticks={} decide p50={} p99={} max={}", bot.session.endpoint().key(), bot.session.metrics().ticks(),
+                        TickMetrics.micros(snapshot.quantile(0.5)), TickMetrics.micros(p99s[i]), TickMetrics.micros(snapshot.max()));
+            }
+            final var sorted = p99s.clone();
+            Arrays.sort(sorted);
+            logger.info("sessions={} alive={} caves={} ticks/s={} | decide p99 per session: median={} p90={} worst={} ({})",
+                    bots.size(), alive, caves.size(), Math.round((ticks - reportedTicks) / ((now - reportedAt) / 1e9)),
+                    TickMetrics.micros(sorted[sorted.length / 2]), TickMetrics.micros(sorted[(int) (sorted.length * 0.9)]),
+                    TickMetrics.micros(sorted[sorted.length - 1]), bots.get(worst).session.endpoint().key());
+            reportedTicks = ticks;
+            reportedAt = now;
+        }
+
+        for (final var bot : bots) {
+            bot.thread.interrupt();
+        }
+        for (final var bot : bots) {
+            bot.thread.join(5_000);
+        }
+        logger.info("Harness done");
+    }
+
+    private static List<Session.Endpoint> endpoints() {
+        final var sessions = System.getProperty("mazev.harness.sessions");
+        final var endpoints = new ArrayList<Session.Endpoint>();
+        if (sessions != null && !sessions.isBlank()) {
+            for (final var spec : sessions.split(",")) {
+                final var parts = spec.trim().split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Expected host:port:key, got " + spec);
+                }
+                endpoints.add(new Session.Endpoint(parts[0], Integer.parseInt(parts[1]), parts[2]));
+            }
+        } else {
+            final var defaults = Session.Endpoint.fromProperties();
+            final var prefix = System.getProperty("mazev.harness.keyPrefix", "bot-");
+            final var count = Integer.getInteger("mazev.harness.bots", 10);
+            for (int i = 0; i < count; i++) {
+                endpoints.add(new Session.Endpoint(defaults.host(), defaults.port(), prefix + i));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No sessions to run");
+        }
+        return endpoints;
+    }
+}
@@ -0,0 +1,157 @@
+package example.harness;
+
+import example.Decider;
+import example.Strategy;
+import example.codec.SessionLogReader;
+import example.metrics.Histogram;
+import example.metrics.TickMetrics;
+import example.path.Planner;
+import example.state.SharedCaves;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+// Feeds a log recorded with -Dmazev.record through the same Decider a session plays with,
+// without a server, so the decision pipeline can be profiled and compared offline. Every
+// recorded state is decided, including the ones the live planner skipped.
+//
+//   -Dmazev.replay.log=session.mzv        the log to replay
+//   -Dmazev.replay.realtime=true          keep the recorded gaps between states instead of full speed
+//   -Dmazev.replay.repeat=1               passes over the log, for a steadier decisions/s
+//   -Dmazev.replay.decisions=out.bin      write the decisions, one byte per state (0xFF for none)
+//   -Dmazev.replay.compare=other.bin      diff them against decisions another build wrote
+//
+// Decisions are also checked against the moves the session sent. Random moves differ by
+// design and are left out of both diffs; planners with a deadline may differ under load.
+public final class Replay {
+    private static final Logger logger = LoggerFactory.getLogger(Replay.class);
+    private static final long DISTANCE_FIELDS_MAX_BYTES = Long.getLong("mazev.fields.maxBytes", 64L << 20);
+    private static final int NONE = 0xFF;
+    private static final int RANDOM = 0x80;
+    private static final int SHOWN = 10;
+
+    public static void main(String[] args) throws IOException {
+        final var log = System.getProperty("mazev.replay.log");
+        if (log == null) {
+            throw new IllegalArgumentException("Set -Dmazev.replay.log to a recorded session");
+        }
+        final var realtime = Boolean.getBoolean("mazev.replay.realtime");
+        final var repeat = Math.max(1, Integer.getInteger("mazev.replay.repeat", 1));
+        final var decisionsPath = System.getProperty("mazev.replay.decisions");
+        final var comparePath = System.getProperty("mazev.replay.compare");
+
+        final var caves = new SharedCaves(DISTANCE_FIELDS_MAX_BYTES);
+        var decisions = ensure(new byte[0], 1023);
+        var recorded = ensure(new byte[0], 1023);
+        var states = 0;
+        try (final var strategy = new Strategy(Planner.fromProperties()); final var metrics = new TickMetrics(0, false)) {
+            for (int pass = 0; pass < repeat; pass++) {
+                // The same seed every pass and build, so random moves repeat too
+                final var decider = new Decider(strategy, metrics, new SplittableRandom(0));
+                final var reader = SessionLogReader.open(Path.of(log));
+                SharedCaves.Shared shared = null;
+                final var started = System.nanoTime();
+                int kind;
+                while ((kind = reader.next()) != SessionLogReader.END) {
+                    switch (kind) {
+                        case SessionLogReader.CAVE -> {
+                            if (shared != null) {
+                                caves.release(shared);
+                            }
+                            shared = caves.acquire(reader.cave());
+                            decider.caveArrived();
+                        }
+                        case SessionLogReader.CAVE_AGAIN -> decider.caveArrived();
+                        case SessionLogReader.LOCATIONS -> {
+                            if (shared == null) {
+                                continue;
+                            }
+                            if (realtime) {
+                                final var due = started + reader.nanos();
+                                for (var wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                                    LockSupport.parkNanos(wait);
+                                }
+                            }
+                            decider.update(shared, reader.locations(), reader.self());
+                            final var direction = decider.decide(System.nanoTime());
+                            metrics.endTick();
+                            final var sequence = reader.sequence();
+                            decisions = ensure(decisions, sequence);
+                            decisions[sequence] = (byte) (direction == null ? NONE : direction.ordinal() | (decider.randomMove() ? RANDOM : 0));
+                            states = Math.max(states, sequence + 1);
+                        }
+                        case SessionLogReader.MOVE -> {
+                            recorded = ensure(recorded, reader.sequence());
+                            recorded[reader.sequence()] = (byte) (reader.direction().ordinal() | (reader.random() ? RANDOM : 0));
+                        }
+                        default -> {
+                        }
+                    }
+                }
+                if (shared != null) {
+                    caves.release(shared);
+                }
+                final var elapsed = System.nanoTime() - started;
+                logger.info("Pass {}: {} states in {} ms, {} decisions/s", pass + 1, states,
+                        elapsed / 1_000_000, Math.round(states / (elapsed / 1e9)));
+                if (decider.cache() != null) {
+                    final var cache = decider.cache();
+                    logger.info("Cache: {} hits of {} lookups ({}%), {} collisions", cache.hits(), cache.lookups(),
+                            Math.round(cache.hitRate() * 1000) / 10.0, cache.collisions());
+                }
+            }
+            final var snapshot = new Histogram.Snapshot();
+            metrics.drainDecisions(snapshot);
+            logger.info("decide p50={} p99={} max={}", TickMetrics.micros(snapshot.quantile(0.5)),
+                    TickMetrics.micros(snapshot.quantile(0.99)), TickMetrics.micros(snapshot.max()));
+        }
+
+        decisions = Arrays.copyOf(decisions, states);
+        diff("recorded moves", decisions, recorded);
+        if (decisionsPath != null) {
+            Files.write(Path.of(decisionsPath), decisions);
+            logger.info("Wrote {} decisions to {}", states, decisionsPath);
+        }
+        if (comparePath != null) {
+            diff(comparePath, decisions, Files.readAllBytes(Path.of(comparePath)));
+        }
+    }
+
+    private static byte[] ensure(byte[] array, int index) {
+        if (index < array.length) {
+            return array;
+        }
+        final var grown = Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+        Arrays.fill(grown, array.length, grown.length, (byte) NONE);
+        return grown;
+    }
+
+    // Counts the states both sides decided without picking at random and that differ
+    private static void diff(String name, byte[] decisions, byte[] other) {
+        var compared = 0;
+        var differing = 0;
+        final var shown = new StringBuilder();
+        for (int sequence = 0; sequence < Math.min(decisions.length, other.length); sequence++) {
+            final var mine = decisions[sequence] & 0xFF;
+            final var theirs = other[sequence] & 0xFF;
+            if (mine == NONE || theirs == NONE || (mine & RANDOM) != 0 || (theirs & RANDOM) != 0) {
+                continue;
+            }
+            compared++;
+            if (mine != theirs && differing++ < SHOWN) {
+                shown.append(' ').append(sequence);
+            }
+        }
+        if (differing == 0) {
+            logger.info("Same as {} on all {} compared states", name, compared);
+        } else {
+            logger.info("Differs from {} on {} of {} compared states, first at:{}", name, differing, compared, shown);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear histogram of non-negative longs: every power of two is split into 8 linear
+// sub-buckets, so any recorded value is reported within 12.5%. Recording is one atomic
+// increment and never allocates; drainTo() hands the counts over to a reader and starts
+// a new interval, so a reporter thread can summarise while the game loop keeps recording.
+public final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    static final int BUCKETS = (63 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        var current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    // Moves the counts recorded since the last call into the snapshot
+    public void drainTo(Snapshot snapshot) {
+        var total = 0L;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final var count = counts.getAndSet(bucket, 0);
+            snapshot.counts[bucket] = count;
+            total += count;
+        }
+        snapshot.total = total;
+        snapshot.max = max.getAndSet(0);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+        final var exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BITS + 1) * SUB + (int) ((value >>> (exponent - SUB_BITS)) & (SUB - 1));
+    }
+
+    // Smallest value that falls into the bucket
+    static long lowest(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+        final var exponent = bucket / SUB + SUB_BITS - 1;
+        return (long) (SUB + bucket % SUB) << (exponent - SUB_BITS);
+    }
+
+    // Largest value that falls into the bucket
+    static long highest(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowest(bucket + 1) - 1;
+    }
+
+    // One interval of a histogram, reused between summaries
+    public static final class Snapshot {
+        private final long[] counts = new long[BUCKETS];
+        private long total;
+        private long max;
+
+        public long total() {
+            return total;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        // Upper bound of the bucket holding the given quantile (0..1), never above max()
+        public long quantile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            final var rank = Math.max(1, (long) Math.ceil(quantile * total));
+            var seen = 0L;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(highest(bucket), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package example.metrics;
+
+// Parts of a tick whose latency is recorded separately
+public enum Phase {
+    READ,    // waiting for and reading the next line from the socket
+    DECODE,  // JSON to LocationsBuffer or Response
+    TARGET,  // choosing the gold or health to go for
+    PLAN,    // distance field step or planner search
+    SEND,    // encoding, writing and flushing the command
+    RENDER;  // handing the table to the renderer
+
+    final String label = name().toLowerCase();
+}
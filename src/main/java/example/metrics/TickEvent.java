@@ -0,0 +1,50 @@
+package example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// One game tick as seen by Flight Recorder, phase durations in nanoseconds
+@Name("example.Tick")
+@Label("Tick")
+@Category("Mazev")
+@Description("Latency of each phase of a game tick")
+@StackTrace(false)
+final class TickEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Read")
+    @Timespan
+    long read;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+
+    @Label("Target")
+    @Timespan
+    long target;
+
+    @Label("Plan")
+    @Timespan
+    long plan;
+
+    @Label("Send")
+    @Timespan
+    long send;
+
+    @Label("Render")
+    @Timespan
+    long render;
+
+    @Label("Expanded Nodes")
+    long expanded;
+
+    @Label("Changes")
+    @Description("Items and players that changed since the previous state")
+    int changes;
+}
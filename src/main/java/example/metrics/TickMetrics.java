@@ -0,0 +1,245 @@
+package example.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-phase tick latency and outcome counters for the game loop. The loop chains phases with
+//   mark = metrics.record(Phase.X, mark)
+// which costs two nanoTime reads' worth of work and no allocation. A daemon thread drains the
+// histograms every -Dmazev.metrics.interval seconds (10 by default, 0 turns it off) and logs
+// p50/p99/max per phase, plus "decide" (target and plan of one tick together). With
+// -Dmazev.metrics.jfr=true every tick is also committed as an example.Tick Flight Recorder event.
+public final class TickMetrics implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TickMetrics.class);
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Histogram[] histograms = new Histogram[PHASES.length];
+    private final Histogram decisions = new Histogram();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong expanded = new AtomicLong();
+    private final AtomicLong randomMoves = new AtomicLong();
+    private final AtomicLong noPath = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong deadlineHits = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong cacheLookups = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final boolean jfr;
+    private final Thread reporter;
+
+    // Owned by the game loop
+    private final long[] tickNanos = new long[PHASES.length];
+    private long tickExpanded;
+    private int tickChanges;
+    private long lastExpandedTotal;
+    private long lastDeadlineHitsTotal;
+
+    // Owned by the reporter
+    private final Histogram.Snapshot snapshot = new Histogram.Snapshot();
+    private final StringBuilder summary = new StringBuilder();
+    private long reportedTicks;
+    private long reportedExpanded;
+    private long reportedRandomMoves;
+    private long reportedNoPath;
+    private long reportedSkipped;
+    private long reportedDeadlineHits;
+    private long reportedChanges;
+    private long reportedCacheLookups;
+    private long reportedCacheHits;
+    private long reportedAt = System.nanoTime();
+
+    public TickMetrics(long intervalSeconds, boolean jfr) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        this.jfr = jfr;
+        this.reporter = intervalSeconds > 0
+                ? Thread.ofPlatform().daemon().name("metrics").start(() -> report(TimeUnit.SECONDS.toMillis(intervalSeconds)))
+                : null;
+    }
+
+    public static TickMetrics fromProperties() {
+        return new TickMetrics(Long.getLong("mazev.metrics.interval", 10), Boolean.getBoolean("mazev.metrics.jfr"));
+    }
+
+    // Records the time since mark for the phase and returns the end of it, the mark for the next phase
+    public long record(Phase phase, long mark) {
+        final var now = System.nanoTime();
+        final var elapsed = now - mark;
+        histograms[phase.ordinal()].record(elapsed);
+        tickNanos[phase.ordinal()] += elapsed;
+        return now;
+    }
+
+    // Records a phase measured elsewhere, e.g. by the reader stage, as part of this tick
+    public void elapsed(Phase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+        tickNanos[phase.ordinal()] += nanos;
+    }
+
+    // Records a phase measured on another thread than the game loop; it goes to the
+    // histogram only and not into the tick's Flight Recorder event
+    public void sample(Phase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    // Adds states the planner never saw because a newer one arrived. A count rather than a
+    // running total, each connection hands states over through a new Handoff counting from 0.
+    public void skipped(long count) {
+        skipped.addAndGet(count);
+    }
+
+    // Takes the planner's running total of searches that ran out of their time budget
+    public void deadlineHits(long total) {
+        deadlineHits.addAndGet(total - lastDeadlineHitsTotal);
+        lastDeadlineHitsTotal = total;
+    }
+
+    // Items and players that changed since the previous state, see StateTracker
+    public void changes(int count) {
+        tickChanges += count;
+        changes.addAndGet(count);
+    }
+
+    // Takes the planner's running total of expanded nodes
+    public void expanded(long total) {
+        final var delta = total - lastExpandedTotal;
+        lastExpandedTotal = total;
+        tickExpanded += delta;
+        expanded.addAndGet(delta);
+    }
+
+    // A DecisionCache lookup and whether it found the decision
+    public void cacheLookup(boolean hit) {
+        cacheLookups.incrementAndGet();
+        if (hit) {
+            cacheHits.incrementAndGet();
+        }
+    }
+
+    public void randomMove() {
+        randomMoves.incrementAndGet();
+    }
+
+    public void noPath() {
+        noPath.incrementAndGet();
+    }
+
+    public void endTick() {
+        final var tick = ticks.incrementAndGet();
+        decisions.record(tickNanos[Phase.TARGET.ordinal()] + tickNanos[Phase.PLAN.ordinal()]);
+        if (jfr) {
+            final var event = new TickEvent();
+            if (event.shouldCommit()) {
+                event.tick = tick;
+                event.read = tickNanos[Phase.READ.ordinal()];
+                event.decode = tickNanos[Phase.DECODE.ordinal()];
+                event.target = tickNanos[Phase.TARGET.ordinal()];
+                event.plan = tickNanos[Phase.PLAN.ordinal()];
+                event.send = tickNanos[Phase.SEND.ordinal()];
+                event.render = tickNanos[Phase.RENDER.ordinal()];
+                event.expanded = tickExpanded;
+                event.changes = tickChanges;
+                event.commit();
+            }
+        }
+        for (int i = 0; i < tickNanos.length; i++) {
+            tickNanos[i] = 0;
+        }
+        tickExpanded = 0;
+        tickChanges = 0;
+    }
+
+    public long ticks() {
+        return ticks.get();
+    }
+
+    // Time from a decoded tick to the chosen move, for a reader that runs without the reporter
+    public void drainDecisions(Histogram.Snapshot snapshot) {
+        decisions.drainTo(snapshot);
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.interrupt();
+        }
+    }
+
+    private void report(long intervalMillis) {
+        try {
+            while (true) {
+                Thread.sleep(intervalMillis);
+                logSummary();
+            }
+        } catch (InterruptedException e) {
+            // Closed, summarise whatever the last interval collected
+            logSummary();
+        }
+    }
+
+    private void logSummary() {
+        final var now = System.nanoTime();
+        final var seconds = Math.max(1, now - reportedAt) / 1e9;
+        reportedAt = now;
+
+        final var ticks = this.ticks.get();
+        final var expanded = this.expanded.get();
+        final var randomMoves = this.randomMoves.get();
+        final var noPath = this.noPath.get();
+        final var skipped = this.skipped.get();
+        final var deadlineHits = this.deadlineHits.get();
+        final var changes = this.changes.get();
+        final var cacheLookups = this.cacheLookups.get();
+        final var cacheHits = this.cacheHits.get();
+        summary.setLength(0);
+        summary.append("ticks=").append(ticks - reportedTicks)
+                .append(" (").append(Math.round((ticks - reportedTicks) / seconds * 10) / 10.0).append("/s)")
+                .append(" expanded=").append(expanded - reportedExpanded)
+                .append(" randomMoves=").append(randomMoves - reportedRandomMoves)
+                .append(" noPath=").append(noPath - reportedNoPath)
+                .append(" skipped=").append(skipped - reportedSkipped)
+                .append(" deadlineHits=").append(deadlineHits - reportedDeadlineHits)
+                .append(" changes=").append(changes - reportedChanges)
+                .append(" (").append(Math.round((changes - reportedChanges) * 10.0 / Math.max(1, ticks - reportedTicks)) / 10.0).append("/tick)");
+        if (cacheLookups > reportedCacheLookups) {
+            summary.append(" cacheHits=").append(cacheHits - reportedCacheHits)
+                    .append(" (").append(Math.round((cacheHits - reportedCacheHits) * 1000.0 / (cacheLookups - reportedCacheLookups)) / 10.0).append("%)");
+        }
+        reportedTicks = ticks;
+        reportedExpanded = expanded;
+        reportedRandomMoves = randomMoves;
+        reportedNoPath = noPath;
+        reportedSkipped = skipped;
+        reportedDeadlineHits = deadlineHits;
+        reportedChanges = changes;
+        reportedCacheLookups = cacheLookups;
+        reportedCacheHits = cacheHits;
+
+        for (final var phase : PHASES) {
+            histograms[phase.ordinal()].drainTo(snapshot);
+            append(phase.label, snapshot);
+        }
+        decisions.drainTo(snapshot);
+        append("decide", snapshot);
+        logger.info("metrics: {}", summary);
+    }
+
+    private void append(String label, Histogram.Snapshot snapshot) {
+        if (snapshot.total() == 0) {
+            return;
+        }
+        summary.append(" | ").append(label)
+                .append(" p50=").append(micros(snapshot.quantile(0.5)))
+                .append(" p99=").append(micros(snapshot.quantile(0.99)))
+                .append(" max=").append(micros(snapshot.max()));
+    }
+
+    // Nanoseconds as microseconds with one decimal
+    public static String micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0 + "us";
+    }
+}
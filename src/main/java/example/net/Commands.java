@@ -0,0 +1,37 @@
+package example.net;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.domain.Request;
+import example.domain.game.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Every request the client sends, encoded once with the same ObjectMapper and newline the
+// old writer chain produced. Sending a move only rewinds a prepared buffer.
+public final class Commands {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final ByteBuffer[] moves = new ByteBuffer[DIRECTIONS.length];
+    private final ObjectMapper objectMapper;
+
+    public Commands(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.objectMapper = objectMapper;
+        for (final var direction : DIRECTIONS) {
+            moves[direction.ordinal()] = encode(new Request.Command(direction));
+        }
+    }
+
+    // Ready to be written; each call rewinds the same buffer, so write it before asking again
+    public ByteBuffer move(Direction direction) {
+        return moves[direction.ordinal()].rewind();
+    }
+
+    public ByteBuffer encode(Request request) throws JsonProcessingException {
+        final var json = objectMapper.writeValueAsBytes(request);
+        final var line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return ByteBuffer.wrap(line).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,125 @@
+package example.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+// Newline-delimited messages over a SocketChannel. Incoming bytes land in one reusable
+// array and readLine() only finds the next '\n', so a message is handed to the decoder as
+// a byte range of that array, never as a String. The channel stays in blocking mode and is
+// read through its socket adaptor, which honours the read timeout and, unlike a Selector,
+// parks a virtual thread instead of blocking its carrier.
+public final class Connection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(Connection.class);
+    private static final int INITIAL_CAPACITY = 64 << 10;
+
+    private final SocketChannel channel;
+    private final InputStream input;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int end;        // bytes read into the buffer
+    private int next;       // start of the first byte not returned as a line yet
+    private int scanned;    // bytes before this index are known not to be '\n'
+    private int lineOffset;
+    private int lineLength;
+
+    private Connection(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.input = channel.socket().getInputStream();
+    }
+
+    // Connects within the timeout; a read waiting longer than readTimeoutMillis fails with
+    // SocketTimeoutException, 0 waits forever
+    public static Connection open(String host, int port, int connectTimeoutMillis, long readTimeoutMillis) throws IOException {
+        final var channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.socket().connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            channel.socket().setSoTimeout((int) Math.min(Integer.MAX_VALUE, readTimeoutMillis));
+            return new Connection(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Advances to the next complete line, false once the server closed the connection.
+    // The line stays valid until the next call.
+    public boolean readLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    lineOffset = next;
+                    lineLength = (i > next && buffer[i - 1] == '\r' ? i - 1 : i) - next;
+                    next = i + 1;
+                    scanned = next;
+                    return true;
+                }
+            }
+            scanned = end;
+            if (!fill()) {
+                if (next < end) {
+                    logger.warn("Connection closed in the middle of a message, dropping {} bytes", end - next);
+                }
+                return false;
+            }
+        }
+    }
+
+    public byte[] lineArray() {
+        return buffer;
+    }
+
+    public int lineOffset() {
+        return lineOffset;
+    }
+
+    public int lineLength() {
+        return lineLength;
+    }
+
+    // Writes the whole message, remaining() bytes from its position; the position is left at the limit
+    public void write(ByteBuffer message) throws IOException {
+        while (message.hasRemaining()) {
+            channel.write(message);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads more bytes after the unreturned tail of the buffer, false at end of stream
+    private boolean fill() throws IOException {
+        if (next == end) {
+            // Everything was consumed, start over at the beginning
+            end = 0;
+            next = 0;
+            scanned = 0;
+        } else if (end == buffer.length) {
+            if (next > 0) {
+                System.arraycopy(buffer, next, buffer, 0, end - next);
+                end -= next;
+                scanned -= next;
+                next = 0;
+            } else {
+                // A single message larger than the buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        final var read = input.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            return false;
+        }
+        end += read;
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package example.net;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// How often and how soon to reconnect after the connection is lost. Delays double from
+// initialMillis up to maxMillis, each one drawn between half and all of that value so several
+// clients dropped together do not come back in lockstep. maxAttempts 0 means never reconnect.
+public record ReconnectPolicy(long initialMillis, long maxMillis, int maxAttempts) {
+
+    public static ReconnectPolicy fromProperties() {
+        return new ReconnectPolicy(
+                Long.getLong("mazev.net.backoffInitialMillis", 500),
+                Long.getLong("mazev.net.backoffMaxMillis", 30_000),
+                Integer.getInteger("mazev.net.reconnectAttempts", 10));
+    }
+
+    // Whether the attempt (counted from 1 since the last successful session) is allowed
+    public boolean allows(int attempt) {
+        return attempt <= maxAttempts;
+    }
+
+    public long delayMillis(int attempt) {
+        final var shift = Math.min(Math.max(attempt - 1, 0), 30);
+        final var delay = Math.min(maxMillis, initialMillis << shift);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
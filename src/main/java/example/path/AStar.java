@@ -0,0 +1,244 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A* over cell indexes with an indexed binary heap as the open list.
+// All per-cell arrays are reused between searches: a cell's scores are only valid
+// when its stamp equals the current generation, so nothing is cleared per tick.
+public final class AStar implements Planner {
+    private int capacity;
+    private int generation;
+
+    private int[] g = new int[0];        // cost of moving to a cell from the start
+    private int[] f = new int[0];        // g + Manhattan distance to the target
+    private int[] parent = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+
+    private int[] heap = new int[0];     // cells ordered by f
+    private int[] heapIndex = new int[0]; // cell -> position in heap
+    private int heapSize;
+
+    // Ties on f are broken in the order the previous HashSet<Location> open list iterated:
+    // by hash bucket for the current table size, then by insertion within a bucket. That is
+    // the order of plain bins only. Once the table has 64 buckets, HashMap turns a bin that
+    // reaches 9 entries into a tree and links each new entry after its parent in the tree,
+    // and equal hashes ((r, c) and (r + 1, c - 31) collide) are placed by identityHashCode,
+    // so the old order was not repeatable there and paths match only in cost. AStarTest
+    // checks both against the old search, treeified bins show up on wide caves with few rocks.
+    private int[] sequence = new int[0];
+    private int[] bucketSize = new int[16];
+    private int nextSequence;
+    private int tableMask;
+
+    private long expanded;
+    private int columns;
+    private int start;
+    private int target;
+    private final PathBuffer path = new PathBuffer();
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        if (!search(terrain, start, target)) {
+            return Collections.emptyList();
+        }
+        reconstructPath(path);
+        return new ArrayList<>(path.toList());
+    }
+
+    @Override
+    public void findPath(Terrain terrain, int start, int target, PathBuffer path) {
+        if (search(terrain, start, target)) {
+            reconstructPath(path);
+        } else {
+            path.clear();
+        }
+    }
+
+    // True when the target was reached, the path is then in the parents
+    private boolean search(Terrain terrain, int start, int target) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells) {
+            return false;
+        }
+        this.columns = columns;
+        this.start = start;
+        this.target = target;
+        prepare(cells);
+
+        final var targetRow = target / columns;
+        final var targetColumn = target - targetRow * columns;
+
+        g[start] = 0;
+        f[start] = distance(start, columns, targetRow, targetColumn);
+        openStamp[start] = generation;
+        push(start);
+
+        while (heapSize > 0) {
+            final var current = pop();
+            if (current == target) {
+                return true;
+            }
+            closedStamp[current] = generation;
+            expanded++;
+
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(current, direction, columns, cells);
+                if (neighbour < 0 || closedStamp[neighbour] == generation || terrain.blocked(neighbour)) {
+                    continue;
+                }
+
+                final var neighbourDistance = g[current] + terrain.stepCost(neighbour);
+                final var open = openStamp[neighbour] == generation;
+                if (!open || neighbourDistance < g[neighbour]) {
+                    g[neighbour] = neighbourDistance;
+                    f[neighbour] = neighbourDistance + distance(neighbour, columns, targetRow, targetColumn);
+                    parent[neighbour] = current;
+                    if (open) {
+                        siftUp(heapIndex[neighbour]);
+                    } else {
+                        openStamp[neighbour] = generation;
+                        push(neighbour);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long expanded() {
+        return expanded;
+    }
+
+    private void prepare(int cells) {
+        if (cells > capacity) {
+            capacity = cells;
+            g = new int[cells];
+            f = new int[cells];
+            parent = new int[cells];
+            openStamp = new int[cells];
+            closedStamp = new int[cells];
+            heap = new int[cells];
+            heapIndex = new int[cells];
+            sequence = new int[cells];
+            bucketSize = new int[Math.max(16, Integer.highestOneBit(cells) << 2)];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        nextSequence = 0;
+        tableMask = 15;
+        Arrays.fill(bucketSize, 0, 16, 0);
+    }
+
+    private static int distance(int cell, int columns, int targetRow, int targetColumn) {
+        final var row = cell / columns;
+        return Math.abs(row - targetRow) + Math.abs(cell - row * columns - targetColumn);
+    }
+
+    private void reconstructPath(PathBuffer path) {
+        var length = 0;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            length++;
+        }
+        path.resize(length);
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            path.set(--length, Cells.direction(parent[cell], cell, columns));
+        }
+    }
+
+    private boolean less(int a, int b) {
+        if (f[a] != f[b]) {
+            return f[a] < f[b];
+        }
+        final var bucketA = bucket(a);
+        final var bucketB = bucket(b);
+        return bucketA < bucketB || (bucketA == bucketB && sequence[a] < sequence[b]);
+    }
+
+    private int bucket(int cell) {
+        final var row = cell / columns;
+        final var hash = 31 * (31 + row) + cell - row * columns;
+        return (hash ^ (hash >>> 16)) & tableMask;
+    }
+
+    private void push(int cell) {
+        sequence[cell] = nextSequence++;
+        final var bucket = bucket(cell);
+        // HashMap doubles a small table instead of treeifying a bin that reaches 9 entries
+        final var resize = ++bucketSize[bucket] > 8 && tableMask < 63;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+        if (heapSize > (tableMask + 1) * 3 / 4 || resize) {
+            // Table grew: the bucket order changed for every open cell
+            tableMask = tableMask * 2 + 1;
+            Arrays.fill(bucketSize, 0, tableMask + 1, 0);
+            for (int i = 0; i < heapSize; i++) {
+                bucketSize[bucket(heap[i])]++;
+            }
+            for (int i = (heapSize >>> 1) - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+    }
+
+    private int pop() {
+        final var top = heap[0];
+        bucketSize[bucket(top)]--;
+        final var last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        final var cell = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentCell = heap[parentIndex];
+            if (!less(cell, parentCell)) {
+                break;
+            }
+            heap[index] = parentCell;
+            heapIndex[parentCell] = index;
+            index = parentIndex;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        final var cell = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
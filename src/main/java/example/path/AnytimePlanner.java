@@ -0,0 +1,135 @@
+package example.path;
+
+import example.domain.game.Direction;
+import example.pipeline.Handoff;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+// A* with a time budget per call. When the budget runs out (or the target turns out to be
+// unreachable) it returns the path to the expanded cell closest to the target, unless the
+// background search already has a full path from here that is still walkable.
+// Between calls a background thread plans from the cell we should be on next, the first step
+// of the path just returned, against a snapshot of this tick's terrain, so a tick that runs
+// out of time can still take a complete path. Every call stops the background search first.
+public final class AnytimePlanner implements Planner {
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private final long budgetNanos;
+    private final BoundedSearch search = new BoundedSearch();
+    private final BoundedSearch background = new BoundedSearch();
+    private final Handoff<Speculation> speculations = new Handoff<>();
+    private final AtomicReference<Refined> refined = new AtomicReference<>();
+    private final BooleanSupplier superseded = this::superseded;
+    private volatile int epoch;
+    private Thread worker;
+    private Speculation spare;
+
+    // Owned by the background thread
+    private Speculation current;
+
+    private long deadlineHits;
+    private long refinedUsed;
+
+    // Full path the background search found for a start and target
+    private record Refined(int start, int target, List<Direction> path) {
+    }
+
+    // Terrain and endpoints handed to the background search
+    private static final class Speculation {
+        private final TerrainSnapshot terrain = new TerrainSnapshot();
+        private int start;
+        private int target;
+        private int epoch;
+    }
+
+    public AnytimePlanner(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        final var epoch = ++this.epoch;
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells) {
+            return Collections.emptyList();
+        }
+
+        final var outcome = search.search(terrain, start, target, System.nanoTime() + budgetNanos, NEVER);
+        List<Direction> path = null;
+        if (outcome != BoundedSearch.Outcome.FOUND) {
+            if (outcome == BoundedSearch.Outcome.STOPPED) {
+                deadlineHits++;
+            }
+            final var refined = this.refined.get();
+            if (refined != null && refined.start == start && refined.target == target && Planner.cost(terrain, start, refined.path) >= 0) {
+                path = refined.path;
+                refinedUsed++;
+            }
+        }
+        if (path == null) {
+            path = search.path(search.best());
+        }
+
+        if (!path.isEmpty()) {
+            final var next = Cells.neighbour(start, path.getFirst().ordinal(), columns, cells);
+            if (next != target) {
+                speculate(terrain, next, target, epoch);
+            }
+        }
+        return path;
+    }
+
+    @Override
+    public long expanded() {
+        return search.expanded();
+    }
+
+    @Override
+    public long deadlineHits() {
+        return deadlineHits;
+    }
+
+    // Calls out of time that took the background search's path instead of a partial one
+    public long refinedUsed() {
+        return refinedUsed;
+    }
+
+    @Override
+    public void close() {
+        speculations.close();
+    }
+
+    private void speculate(Terrain terrain, int start, int target, int epoch) {
+        // The one the previous publish handed back, if the background thread is not on it
+        final var speculation = spare != null ? spare : new Speculation();
+        speculation.terrain.capture(terrain);
+        speculation.start = start;
+        speculation.target = target;
+        speculation.epoch = epoch;
+        spare = speculations.publish(speculation);
+        if (worker == null) {
+            final var threads = Thread.currentThread().isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+            worker = threads.name("speculative-planner").start(this::refine);
+        }
+    }
+
+    private void refine() {
+        Speculation speculation;
+        while ((speculation = speculations.take()) != null) {
+            current = speculation;
+            if (background.search(speculation.terrain, speculation.start, speculation.target, BoundedSearch.NO_DEADLINE, superseded) == BoundedSearch.Outcome.FOUND) {
+                refined.set(new Refined(speculation.start, speculation.target, background.path(speculation.target)));
+            }
+            speculations.release(speculation);
+        }
+    }
+
+    // A newer call started, the background result would come too late to matter
+    private boolean superseded() {
+        return current.epoch != epoch;
+    }
+}
@@ -0,0 +1,203 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+// A* that gives up at a deadline or when asked to stop, remembering the expanded cell closest
+// to the target (lowest heuristic, then cheapest) so the caller can still head that way.
+// Per-cell arrays are stamped and reused like in AStar; ties on f go to the lower heuristic.
+final class BoundedSearch {
+    // Expansions between two looks at the clock
+    private static final int CHECK_INTERVAL = 64;
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    enum Outcome {
+        FOUND,
+        UNREACHABLE,
+        STOPPED
+    }
+
+    private int capacity;
+    private int generation;
+    private int[] g = new int[0];
+    private int[] f = new int[0];
+    private int[] parent = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    private int start;
+    private int columns;
+    private int best;
+    private long expanded;
+
+    Outcome search(Terrain terrain, int start, int target, long deadline, BooleanSupplier stop) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        this.start = start;
+        this.columns = columns;
+        prepare(cells);
+
+        final var targetRow = target / columns;
+        final var targetColumn = target - targetRow * columns;
+
+        g[start] = 0;
+        f[start] = distance(start, columns, targetRow, targetColumn);
+        openStamp[start] = generation;
+        push(start);
+        best = start;
+
+        var untilCheck = CHECK_INTERVAL;
+        while (heapSize > 0) {
+            if (--untilCheck == 0) {
+                if ((deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) || stop.getAsBoolean()) {
+                    return Outcome.STOPPED;
+                }
+                untilCheck = CHECK_INTERVAL;
+            }
+            final var current = pop();
+            if (current == target) {
+                best = target;
+                return Outcome.FOUND;
+            }
+            closedStamp[current] = generation;
+            expanded++;
+            final var h = f[current] - g[current];
+            final var bestH = f[best] - g[best];
+            if (h < bestH || (h == bestH && g[current] < g[best])) {
+                best = current;
+            }
+
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(current, direction, columns, cells);
+                if (neighbour < 0 || closedStamp[neighbour] == generation || terrain.blocked(neighbour)) {
+                    continue;
+                }
+                final var neighbourDistance = g[current] + terrain.stepCost(neighbour);
+                final var open = openStamp[neighbour] == generation;
+                if (!open || neighbourDistance < g[neighbour]) {
+                    g[neighbour] = neighbourDistance;
+                    f[neighbour] = neighbourDistance + distance(neighbour, columns, targetRow, targetColumn);
+                    parent[neighbour] = current;
+                    if (open) {
+                        siftUp(heapIndex[neighbour]);
+                    } else {
+                        openStamp[neighbour] = generation;
+                        push(neighbour);
+                    }
+                }
+            }
+        }
+        return Outcome.UNREACHABLE;
+    }
+
+    // The target after FOUND, otherwise the expanded cell closest to it
+    int best() {
+        return best;
+    }
+
+    long expanded() {
+        return expanded;
+    }
+
+    // Directions from the start of the last search to a cell it expanded
+    List<Direction> path(int cell) {
+        var length = 0;
+        for (int at = cell; at != start; at = parent[at]) {
+            length++;
+        }
+        final var path = new Direction[length];
+        for (int at = cell; at != start; at = parent[at]) {
+            path[--length] = Cells.direction(parent[at], at, columns);
+        }
+        return List.of(path);
+    }
+
+    private void prepare(int cells) {
+        if (cells > capacity) {
+            capacity = cells;
+            g = new int[cells];
+            f = new int[cells];
+            parent = new int[cells];
+            openStamp = new int[cells];
+            closedStamp = new int[cells];
+            heap = new int[cells];
+            heapIndex = new int[cells];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+    }
+
+    private static int distance(int cell, int columns, int targetRow, int targetColumn) {
+        final var row = cell / columns;
+        return Math.abs(row - targetRow) + Math.abs(cell - row * columns - targetColumn);
+    }
+
+    // Lower f first, then the one closer to the target
+    private boolean less(int a, int b) {
+        return f[a] != f[b] ? f[a] < f[b] : g[a] > g[b];
+    }
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final var top = heap[0];
+        final var last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        final var cell = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentCell = heap[parentIndex];
+            if (!less(cell, parentCell)) {
+                break;
+            }
+            heap[index] = parentCell;
+            heapIndex[parentCell] = index;
+            index = parentIndex;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        final var cell = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
@@ -0,0 +1,46 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+// Helpers for cell indexes, cell = row * columns + column
+public final class Cells {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private Cells() {
+    }
+
+    public static int of(int row, int column, int columns) {
+        return row * columns + column;
+    }
+
+    // Neighbour in the given direction (Direction ordinal), -1 when it is outside the cave
+    public static int neighbour(int cell, int direction, int columns, int cells) {
+        return switch (direction) {
+            case 0 -> cell >= columns ? cell - columns : -1;
+            case 1 -> cell + columns < cells ? cell + columns : -1;
+            case 2 -> cell % columns > 0 ? cell - 1 : -1;
+            default -> cell % columns < columns - 1 ? cell + 1 : -1;
+        };
+    }
+
+    // Direction of a single step between adjacent cells
+    public static Direction direction(int from, int to, int columns) {
+        final var delta = to - from;
+        if (delta == -columns) {
+            return DIRECTIONS[0];
+        } else if (delta == columns) {
+            return DIRECTIONS[1];
+        } else if (delta == -1) {
+            return DIRECTIONS[2];
+        } else {
+            return DIRECTIONS[3];
+        }
+    }
+
+    // Manhattan distance between two cells
+    public static int distance(int from, int to, int columns) {
+        final var fromRow = from / columns;
+        final var toRow = to / columns;
+        return Math.abs(fromRow - toRow) + Math.abs(from - fromRow * columns - (to - toRow * columns));
+    }
+}
@@ -0,0 +1,339 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+// Abstract graph for hierarchical pathfinding (HPA*) over the rocks of one cave. The grid is
+// cut into clusterSize x clusterSize clusters; wherever free cells face each other across a
+// cluster border there is an entrance (one transition in the middle of a short opening, one
+// at each end of a long one), and both of its cells are nodes. Nodes are linked by a step
+// across the border and, inside a cluster, by their shortest rock-free distance, computed once
+// per cluster in parallel. Players and health are ignored: the graph only changes with the cave.
+// Nodes are numbered cluster by cluster, in cell order within a cluster.
+public final class ClusterGraph {
+    public static final int DEFAULT_CLUSTER_SIZE = Integer.getInteger("mazev.hpa.clusterSize", 32);
+    private static final int LONG_ENTRANCE = 6;
+
+    private final int rows;
+    private final int columns;
+    private final int clusterSize;
+    private final int clusterColumns;
+    private final int stride;         // row length of a cluster with a padding cell on each side
+    private final IntPredicate rock;
+    private final int[] nodeCell;     // node -> cell
+    private final int[] firstNode;    // cluster -> its first node, clusters + 1 entries
+    private final int[][] distances;  // cluster -> k x k distances between its nodes, -1 if none
+    private final int[] across;       // node * 4 + direction -> node across the border, -1 if none
+    private final long buildNanos;
+
+    private ClusterGraph(int rows, int columns, IntPredicate rock, int clusterSize, ForkJoinPool pool) {
+        final var started = System.nanoTime();
+        this.rows = rows;
+        this.columns = columns;
+        this.clusterSize = clusterSize;
+        this.clusterColumns = (columns + clusterSize - 1) / clusterSize;
+        this.stride = clusterSize + 2;
+        this.rock = rock;
+        final var clusters = clusterColumns * ((rows + clusterSize - 1) / clusterSize);
+
+        // Transitions as pairs of cells, the first one above or left of the border
+        final var transitions = new IntList();
+        for (int row = 0; row < rows; row += clusterSize) {
+            for (int column = clusterSize - 1; column + 1 < columns; column += clusterSize) {
+                entrances(transitions, row * columns + column, Math.min(rows, row + clusterSize) - row, columns, 1);
+            }
+        }
+        for (int row = clusterSize - 1; row + 1 < rows; row += clusterSize) {
+            for (int column = 0; column < columns; column += clusterSize) {
+                entrances(transitions, row * columns + column, Math.min(columns, column + clusterSize) - column, 1, columns);
+            }
+        }
+
+        // Sorting by cluster, then cell, numbers the nodes; duplicates are cells on two entrances
+        final var keys = new long[transitions.size];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) cluster(transitions.values[i]) << 32 | transitions.values[i];
+        }
+        Arrays.sort(keys);
+        var nodes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[nodes++] = keys[i];
+            }
+        }
+        this.nodeCell = new int[nodes];
+        this.firstNode = new int[clusters + 1];
+        for (int node = 0; node < nodes; node++) {
+            nodeCell[node] = (int) keys[node];
+            firstNode[(int) (keys[node] >>> 32) + 1]++;
+        }
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            firstNode[cluster + 1] += firstNode[cluster];
+        }
+
+        this.across = new int[nodes * 4];
+        Arrays.fill(across, -1);
+        for (int i = 0; i < transitions.size; i += 2) {
+            final var first = node(transitions.values[i]);
+            final var second = node(transitions.values[i + 1]);
+            final var down = transitions.values[i + 1] - transitions.values[i] == columns;
+            across[first * 4 + (down ? 1 : 3)] = second;
+            across[second * 4 + (down ? 0 : 2)] = first;
+        }
+
+        this.distances = new int[clusters][];
+        final var tasks = new ArrayList<Callable<Void>>(clusters);
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            final var index = cluster;
+            tasks.add(() -> {
+                distances[index] = clusterDistances(index);
+                return null;
+            });
+        }
+        for (final var task : pool.invokeAll(tasks)) {
+            if (task.state() == Future.State.FAILED) {
+                throw new IllegalStateException("Cluster distances failed", task.exceptionNow());
+            }
+        }
+        this.buildNanos = System.nanoTime() - started;
+    }
+
+    public static ClusterGraph build(int rows, int columns, IntPredicate rock, int clusterSize, ForkJoinPool pool) {
+        return new ClusterGraph(rows, columns, rock, clusterSize, pool);
+    }
+
+    // Scans length cells from start, stride apart, against the cells step beyond them on the
+    // other side of the border for runs where both sides are free
+    private void entrances(IntList transitions, int start, int length, int stride, int step) {
+        var run = -1;
+        for (int i = 0; i <= length; i++) {
+            final var cell = start + i * stride;
+            final var open = i < length && !rock.test(cell) && !rock.test(cell + step);
+            if (open && run < 0) {
+                run = i;
+            } else if (!open && run >= 0) {
+                if (i - run < LONG_ENTRANCE) {
+                    final var middle = start + (run + (i - run) / 2) * stride;
+                    transitions.add(middle, middle + step);
+                } else {
+                    final var low = start + run * stride;
+                    final var high = start + (i - 1) * stride;
+                    transitions.add(low, low + step);
+                    transitions.add(high, high + step);
+                }
+                run = -1;
+            }
+        }
+    }
+
+    private int[] clusterDistances(int cluster) {
+        final var first = firstNode[cluster];
+        final var count = firstNode[cluster + 1] - first;
+        final var result = new int[count * count];
+        final var mask = new int[localCells()];
+        final var distance = new int[localCells()];
+        final var queue = new int[localCells()];
+        mask(cluster, mask);
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(mask, 0, distance, 0, mask.length);
+            spread(local(nodeCell[first + i]), distance, queue);
+            for (int j = 0; j < count; j++) {
+                result[i * count + j] = distance[local(nodeCell[first + j])];
+            }
+        }
+        return result;
+    }
+
+    // Breadth-first search over the free cells of the cell's cluster. Distances are indexed by
+    // local(cell) and negative where the cell cannot be reached inside the cluster.
+    void search(int cell, int[] distance, int[] queue) {
+        mask(cluster(cell), distance);
+        spread(local(cell), distance, queue);
+    }
+
+    // Rocks and the padding around the cluster as -2, free cells as -1
+    private void mask(int cluster, int[] mask) {
+        Arrays.fill(mask, -2);
+        final var rowFrom = cluster / clusterColumns * clusterSize;
+        final var columnFrom = cluster % clusterColumns * clusterSize;
+        final var rowTo = Math.min(rows, rowFrom + clusterSize);
+        final var columnTo = Math.min(columns, columnFrom + clusterSize);
+        for (int row = rowFrom; row < rowTo; row++) {
+            final var local = (row - rowFrom + 1) * stride + 1 - columnFrom;
+            for (int column = columnFrom; column < columnTo; column++) {
+                if (!rock.test(row * columns + column)) {
+                    mask[local + column] = -1;
+                }
+            }
+        }
+    }
+
+    // The padding stops the search at the cluster's edge without bounds checks
+    private void spread(int from, int[] distance, int[] queue) {
+        distance[from] = 0;
+        var read = 0;
+        var write = 0;
+        queue[write++] = from;
+        while (read < write) {
+            final var current = queue[read++];
+            final var next = distance[current] + 1;
+            if (distance[current - stride] == -1) {
+                distance[current - stride] = next;
+                queue[write++] = current - stride;
+            }
+            if (distance[current + stride] == -1) {
+                distance[current + stride] = next;
+                queue[write++] = current + stride;
+            }
+            if (distance[current - 1] == -1) {
+                distance[current - 1] = next;
+                queue[write++] = current - 1;
+            }
+            if (distance[current + 1] == -1) {
+                distance[current + 1] = next;
+                queue[write++] = current + 1;
+            }
+        }
+    }
+
+    // Writes a shortest path between two cells of one cluster, staying inside it, and returns
+    // the number of steps written
+    int walk(int from, int to, Direction[] into, int offset) {
+        final var distance = new int[localCells()];
+        search(to, distance, new int[localCells()]);
+        if (distance[local(from)] < 0) {
+            throw new IllegalArgumentException("No path inside the cluster from " + from + " to " + to);
+        }
+        final var cells = rows * columns;
+        final var cluster = cluster(from);
+        var written = 0;
+        for (int cell = from; cell != to; written++) {
+            final var remaining = distance[local(cell)];
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+                if (neighbour >= 0 && cluster(neighbour) == cluster && distance[local(neighbour)] == remaining - 1) {
+                    into[offset + written] = Cells.direction(cell, neighbour, columns);
+                    cell = neighbour;
+                    break;
+                }
+            }
+        }
+        return written;
+    }
+
+    // Position of a cell within its padded cluster
+    int local(int cell) {
+        final var row = cell / columns;
+        return (row % clusterSize + 1) * stride + (cell - row * columns) % clusterSize + 1;
+    }
+
+    // Cells in a padded cluster, the size of the arrays search() takes
+    int localCells() {
+        return stride * stride;
+    }
+
+    int cluster(int cell) {
+        final var row = cell / columns;
+        return row / clusterSize * clusterColumns + (cell - row * columns) / clusterSize;
+    }
+
+    // Node at the cell, -1 if the cell is not on an entrance
+    int node(int cell) {
+        final var cluster = cluster(cell);
+        final var found = Arrays.binarySearch(nodeCell, firstNode[cluster], firstNode[cluster + 1], cell);
+        return found >= 0 ? found : -1;
+    }
+
+    int nodes() {
+        return nodeCell.length;
+    }
+
+    int nodeCell(int node) {
+        return nodeCell[node];
+    }
+
+    int firstNode(int cluster) {
+        return firstNode[cluster];
+    }
+
+    int nodeCount(int cluster) {
+        return firstNode[cluster + 1] - firstNode[cluster];
+    }
+
+    // Distance inside the cluster between its i-th and j-th node, -1 if there is none
+    int distance(int cluster, int i, int j) {
+        return distances[cluster][i * nodeCount(cluster) + j];
+    }
+
+    int across(int node, int direction) {
+        return across[node * 4 + direction];
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int clusterSize() {
+        return clusterSize;
+    }
+
+    // Whether the graph was built for a grid of this shape
+    public boolean fits(int rows, int columns) {
+        return this.rows == rows && this.columns == columns;
+    }
+
+    public int clusters() {
+        return distances.length;
+    }
+
+    public long edges() {
+        var edges = 0L;
+        for (final var cluster : distances) {
+            for (final var distance : cluster) {
+                edges += distance > 0 ? 1 : 0;
+            }
+        }
+        for (final var node : across) {
+            edges += node >= 0 ? 1 : 0;
+        }
+        return edges;
+    }
+
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    // Bytes held by the graph's arrays, the cave itself not counted
+    public long bytes() {
+        var bytes = 16L + 4L * nodeCell.length + 16 + 4L * firstNode.length + 16 + 4L * across.length + 16 + 4L * distances.length;
+        for (final var cluster : distances) {
+            bytes += 16 + 4L * cluster.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterGraph[" + rows + "x" + columns + ", clusters=" + clusters() + " of " + clusterSize + "x" + clusterSize
+                + ", nodes=" + nodes() + ", edges=" + edges() + ", built in " + buildNanos / 1_000_000 + " ms, " + bytes() / 1024 + " KiB]";
+    }
+
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        private void add(int first, int second) {
+            if (size + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = first;
+            values[size++] = second;
+        }
+    }
+}
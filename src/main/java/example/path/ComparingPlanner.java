@@ -0,0 +1,75 @@
+package example.path;
+
+import example.domain.game.Direction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Runs a candidate planner next to the reference one and reports where they disagree.
+// The reference result is the one returned, so the bot behaves as with the reference alone.
+public final class ComparingPlanner implements Planner {
+    private static final Logger logger = LoggerFactory.getLogger(ComparingPlanner.class);
+
+    private final Planner reference;
+    private final Planner candidate;
+
+    private long referenceNanos;
+    private long candidateNanos;
+    private long calls;
+    private long mismatches;
+
+    public ComparingPlanner(Planner reference, Planner candidate) {
+        this.reference = reference;
+        this.candidate = candidate;
+    }
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        final var referenceStart = System.nanoTime();
+        final var expected = reference.findPath(terrain, start, target);
+        final var candidateStart = System.nanoTime();
+        final var actual = candidate.findPath(terrain, start, target);
+        final var end = System.nanoTime();
+
+        referenceNanos += candidateStart - referenceStart;
+        candidateNanos += end - candidateStart;
+        calls++;
+
+        final var expectedCost = expected.isEmpty() ? -1 : Planner.cost(terrain, start, expected);
+        final var actualCost = actual.isEmpty() ? -1 : Planner.cost(terrain, start, actual);
+        if (expectedCost != actualCost) {
+            mismatches++;
+            logger.info("Planners disagree from {} to {}: {} cost {} vs {} cost {}", start, target,
+                    reference.getClass().getSimpleName(), expectedCost, candidate.getClass().getSimpleName(), actualCost);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} took {} us, {} took {} us (average {} us vs {} us over {} calls, {} mismatches)",
+                    reference.getClass().getSimpleName(), (candidateStart - referenceStart) / 1_000,
+                    candidate.getClass().getSimpleName(), (end - candidateStart) / 1_000,
+                    referenceNanos / calls / 1_000, candidateNanos / calls / 1_000, calls, mismatches);
+        }
+        return expected;
+    }
+
+    @Override
+    public long expanded() {
+        return reference.expanded();
+    }
+
+    @Override
+    public void reset() {
+        reference.reset();
+        candidate.reset();
+    }
+
+    @Override
+    public void close() {
+        reference.close();
+        candidate.close();
+    }
+
+    public long mismatches() {
+        return mismatches;
+    }
+}
@@ -0,0 +1,419 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// D* Lite: searches backwards from the target and keeps its search tree between ticks.
+// Each call only re-evaluates the cells whose occupancy changed since the previous call and
+// then repairs the tree for the new start; a full search is done only when the target moves
+// or after reset(), as rocks are never compared.
+// Steps onto health are free, and D* Lite needs positive edge costs (two free steps would
+// keep each other consistent after being cut off), so every step costs stepCost * STEP + 1:
+// paths are still ranked by their cost first and only ties are broken by length.
+// The heuristic is scaled by the cheapest step, so it changes (and the tree is rebuilt)
+// when health appears on or disappears from the map.
+public final class DStarLite implements Planner {
+    private static final long INFINITY = Long.MAX_VALUE / 4;
+    private static final byte FREE = 0;
+    private static final byte DISCOUNTED = 1;
+    private static final byte BLOCKED = 2;
+
+    private int columns;
+    private int cells;
+    private int generation;
+    private int[] stamp = new int[0];
+    private long[] g = new long[0];
+    private long[] rhs = new long[0];
+    private long step;
+
+    private long[] heapKey = new long[0];
+    private long[] heapTie = new long[0];
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    // Occupied cells seen on the previous call and the cost class assumed for them
+    private byte[] lastCode = new byte[0];
+    private int[] watched = new int[16];
+    private int watchedCount;
+    private int[] watchedStamp = new int[0];
+    private int tick;
+
+    private int target = -1;
+    private int start;
+    private int last;
+    private long keyModifier;
+    private boolean heuristic;
+    private long expanded;
+    private long rebuilds;
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells) {
+            return Collections.emptyList();
+        }
+
+        final var heuristic = !anyDiscount(terrain);
+        if (target != this.target || cells != this.cells || columns != this.columns || heuristic != this.heuristic) {
+            initialize(terrain, start, target, heuristic);
+        } else {
+            keyModifier += h(last, start);
+            last = start;
+            this.start = start;
+            applyChanges(terrain);
+        }
+        computeShortestPath(terrain);
+        return extractPath(terrain);
+    }
+
+    @Override
+    public long expanded() {
+        return expanded;
+    }
+
+    // Only occupied cells are compared between calls, a change of rocks needs a full search
+    @Override
+    public void reset() {
+        target = -1;
+    }
+
+    // Full searches done because the target, the cave or the heuristic changed
+    public long rebuilds() {
+        return rebuilds;
+    }
+
+    private static boolean anyDiscount(Terrain terrain) {
+        for (int i = 0; i < terrain.occupiedCount(); i++) {
+            final var cell = terrain.occupiedCell(i);
+            if (!terrain.blocked(cell) && terrain.stepCost(cell) < 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void initialize(Terrain terrain, int start, int target, boolean heuristic) {
+        final var cells = terrain.rows() * terrain.columns();
+        if (cells != this.cells) {
+            stamp = new int[cells];
+            g = new long[cells];
+            rhs = new long[cells];
+            heapKey = new long[cells];
+            heapTie = new long[cells];
+            heap = new int[cells];
+            heapIndex = new int[cells];
+            lastCode = new byte[cells];
+            watchedStamp = new int[cells];
+            generation = 0;
+            tick = 0;
+        }
+        this.cells = cells;
+        this.columns = terrain.columns();
+        this.step = cells + 1L;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        keyModifier = 0;
+        this.target = target;
+        this.start = start;
+        this.last = start;
+        this.heuristic = heuristic;
+        rebuilds++;
+
+        for (int i = 0; i < watchedCount; i++) {
+            lastCode[watched[i]] = FREE;
+        }
+        watchedCount = 0;
+        for (int i = 0; i < terrain.occupiedCount(); i++) {
+            final var cell = terrain.occupiedCell(i);
+            lastCode[cell] = code(terrain, cell);
+            watched = append(watched, watchedCount++, cell);
+        }
+
+        touch(target);
+        rhs[target] = 0;
+        insert(target);
+    }
+
+    // Re-evaluate cells whose cost class differs from the one the tree was built with
+    private void applyChanges(Terrain terrain) {
+        if (++tick == Integer.MAX_VALUE) {
+            Arrays.fill(watchedStamp, 0);
+            tick = 1;
+        }
+        final var previousCount = watchedCount;
+        for (int i = 0; i < terrain.occupiedCount(); i++) {
+            final var cell = terrain.occupiedCell(i);
+            watchedStamp[cell] = tick;
+            final var code = code(terrain, cell);
+            if (code != lastCode[cell]) {
+                lastCode[cell] = code;
+                cellChanged(terrain, cell);
+            }
+        }
+        // Cells occupied before but not any more went back to plain floor
+        for (int i = 0; i < previousCount; i++) {
+            final var cell = watched[i];
+            if (watchedStamp[cell] == tick) {
+                continue;
+            }
+            if (lastCode[cell] != FREE) {
+                lastCode[cell] = FREE;
+                cellChanged(terrain, cell);
+            }
+        }
+        watchedCount = 0;
+        for (int i = 0; i < terrain.occupiedCount(); i++) {
+            watched = append(watched, watchedCount++, terrain.occupiedCell(i));
+        }
+    }
+
+    private void cellChanged(Terrain terrain, int cell) {
+        updateRhs(terrain, cell);
+        for (int direction = 0; direction < 4; direction++) {
+            final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+            if (neighbour >= 0) {
+                updateRhs(terrain, neighbour);
+            }
+        }
+    }
+
+    private void updateRhs(Terrain terrain, int cell) {
+        if (cell != target) {
+            touch(cell);
+            rhs[cell] = lookahead(terrain, cell);
+        }
+        updateVertex(cell);
+    }
+
+    private void computeShortestPath(Terrain terrain) {
+        while (heapSize > 0 && (lessThanStart(heap[0]) || rhs(start) != g(start))) {
+            final var current = heap[0];
+            final var oldKey = heapKey[current];
+            final var oldTie = heapTie[current];
+            final var newKey = primaryKey(current);
+            final var newTie = Math.min(g[current], rhs[current]);
+            if (oldKey < newKey || (oldKey == newKey && oldTie < newTie)) {
+                update(current);
+            } else if (g[current] > rhs[current]) {
+                expanded++;
+                g[current] = rhs[current];
+                remove(current);
+                for (int direction = 0; direction < 4; direction++) {
+                    final var neighbour = Cells.neighbour(current, direction, columns, cells);
+                    if (neighbour >= 0 && neighbour != target) {
+                        touch(neighbour);
+                        rhs[neighbour] = Math.min(rhs[neighbour], add(cost(terrain, neighbour, current), g[current]));
+                        updateVertex(neighbour);
+                    }
+                }
+            } else {
+                expanded++;
+                final var oldG = g[current];
+                g[current] = INFINITY;
+                if (current != target) {
+                    rhs[current] = lookahead(terrain, current);
+                }
+                updateVertex(current);
+                for (int direction = 0; direction < 4; direction++) {
+                    final var neighbour = Cells.neighbour(current, direction, columns, cells);
+                    if (neighbour >= 0 && neighbour != target) {
+                        touch(neighbour);
+                        if (rhs[neighbour] == add(cost(terrain, neighbour, current), oldG)) {
+                            rhs[neighbour] = lookahead(terrain, neighbour);
+                        }
+                        updateVertex(neighbour);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean lessThanStart(int cell) {
+        final var startKey = primaryKey(start);
+        return heapKey[cell] < startKey || (heapKey[cell] == startKey && heapTie[cell] < Math.min(g(start), rhs(start)));
+    }
+
+    // Follow the cheapest successor from the start, every step strictly lowers g
+    private List<Direction> extractPath(Terrain terrain) {
+        if (g(start) >= INFINITY) {
+            return Collections.emptyList();
+        }
+        final var path = new ArrayList<Direction>();
+        var current = start;
+        while (current != target) {
+            var best = -1;
+            var bestCost = INFINITY;
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(current, direction, columns, cells);
+                if (neighbour < 0) {
+                    continue;
+                }
+                final var cost = add(cost(terrain, current, neighbour), g(neighbour));
+                if (cost < bestCost) {
+                    best = neighbour;
+                    bestCost = cost;
+                }
+            }
+            if (best < 0 || path.size() == cells) {
+                return Collections.emptyList();
+            }
+            path.add(Cells.direction(current, best, columns));
+            current = best;
+        }
+        return path;
+    }
+
+    private long lookahead(Terrain terrain, int cell) {
+        var best = INFINITY;
+        for (int direction = 0; direction < 4; direction++) {
+            final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+            if (neighbour >= 0) {
+                best = Math.min(best, add(cost(terrain, cell, neighbour), g(neighbour)));
+            }
+        }
+        return best;
+    }
+
+    private void updateVertex(int cell) {
+        final var queued = heapIndex[cell] >= 0;
+        if (g[cell] != rhs[cell]) {
+            if (queued) {
+                update(cell);
+            } else {
+                insert(cell);
+            }
+        } else if (queued) {
+            remove(cell);
+        }
+    }
+
+    // Cost of the move from one cell onto an adjacent one
+    private long cost(Terrain terrain, int from, int to) {
+        if (terrain.blocked(from) || terrain.blocked(to)) {
+            return INFINITY;
+        }
+        return terrain.stepCost(to) * step + 1;
+    }
+
+    private static byte code(Terrain terrain, int cell) {
+        if (terrain.blocked(cell)) {
+            return BLOCKED;
+        }
+        return terrain.stepCost(cell) < 1 ? DISCOUNTED : FREE;
+    }
+
+    private static long add(long a, long b) {
+        return a >= INFINITY || b >= INFINITY ? INFINITY : a + b;
+    }
+
+    // Manhattan distance times the cheapest step cost on the map
+    private long h(int from, int to) {
+        return Cells.distance(from, to, columns) * (heuristic ? step + 1 : 1);
+    }
+
+    private long primaryKey(int cell) {
+        final var value = Math.min(g(cell), rhs(cell));
+        return value >= INFINITY ? INFINITY : value + h(start, cell) + keyModifier;
+    }
+
+    private long g(int cell) {
+        return stamp[cell] == generation ? g[cell] : INFINITY;
+    }
+
+    private long rhs(int cell) {
+        return stamp[cell] == generation ? rhs[cell] : INFINITY;
+    }
+
+    private void touch(int cell) {
+        if (stamp[cell] != generation) {
+            stamp[cell] = generation;
+            g[cell] = INFINITY;
+            rhs[cell] = INFINITY;
+            heapIndex[cell] = -1;
+        }
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private void insert(int cell) {
+        heapKey[cell] = primaryKey(cell);
+        heapTie[cell] = Math.min(g[cell], rhs[cell]);
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void update(int cell) {
+        heapKey[cell] = primaryKey(cell);
+        heapTie[cell] = Math.min(g[cell], rhs[cell]);
+        siftUp(heapIndex[cell]);
+        siftDown(heapIndex[cell]);
+    }
+
+    private boolean less(int a, int b) {
+        return heapKey[a] < heapKey[b] || (heapKey[a] == heapKey[b] && heapTie[a] < heapTie[b]);
+    }
+
+    private void remove(int cell) {
+        final var index = heapIndex[cell];
+        heapIndex[cell] = -1;
+        final var last = heap[--heapSize];
+        if (index < heapSize) {
+            heap[index] = last;
+            heapIndex[last] = index;
+            siftUp(index);
+            siftDown(heapIndex[last]);
+        }
+    }
+
+    private void siftUp(int index) {
+        final var cell = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentCell = heap[parentIndex];
+            if (!less(cell, parentCell)) {
+                break;
+            }
+            heap[index] = parentCell;
+            heapIndex[parentCell] = index;
+            index = parentIndex;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        final var cell = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
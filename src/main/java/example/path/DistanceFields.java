@@ -0,0 +1,335 @@
+package example.path;
+
+import example.domain.game.BitCave;
+import example.domain.game.Cave;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+// BFS distance maps over the rocks of a single cave, computed lazily per source cell.
+// The cave never changes, so a field stays valid for the whole game; fields are kept in
+// least-recently-used order and the oldest one is dropped once the memory cap is reached.
+// Distances are stored as unsigned shorts, UNREACHABLE marks cells the source cannot reach.
+// Sessions playing the same cave share one instance, so a field one session computed is
+// free for the others. A lock guards the least-recently-used bookkeeping only: a missing field
+// is searched outside it by the first caller asking for it, later callers wait on that
+// search's future, and it is published once complete. A field is never written after that,
+// an evicted one is left to the garbage collector rather than reused, so callers can read it
+// without the lock. The lock is a ReentrantLock rather than synchronized so a virtual thread
+// waiting on it does not pin its carrier.
+public final class DistanceFields {
+    public static final int UNREACHABLE = 0xFFFF;
+
+    private final BitCave cave;
+    private final int columns;
+    private final int cells;
+    private final int rows;
+    private final int rowWords;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Fields being searched, by source cell
+    private final HashMap<Integer, CompletableFuture<short[]>> searches = new HashMap<>();
+
+    private final short[][] fields;
+    private final int[] source;     // slot -> source cell
+    private final int[] previous;   // slot -> more recently used slot
+    private final int[] next;       // slot -> less recently used slot
+    private final int[] slotOf;     // cell -> slot holding its field, -1 if not cached
+    private int head = -1;
+    private int tail = -1;
+    private int used;
+
+    private long computed;
+    private long evicted;
+
+    public DistanceFields(Cave cave, long maxBytes) {
+        this.cave = BitCave.of(cave);
+        this.columns = cave.columns();
+        this.cells = cave.rows() * columns;
+        this.rows = cave.rows();
+        this.rowWords = this.cave.rowWords();
+
+        final var capacity = (int) Math.max(1, Math.min(cells, maxBytes / Math.max(1, 2L * cells)));
+        this.fields = new short[capacity][];
+        this.source = new int[capacity];
+        this.previous = new int[capacity];
+        this.next = new int[capacity];
+        this.slotOf = new int[cells];
+        Arrays.fill(slotOf, -1);
+    }
+
+    public BitCave cave() {
+        return cave;
+    }
+
+    // Length of the shortest rock-free path between two cells, -1 if there is none
+    public int distance(int from, int to) {
+        final var distance = field(from)[to] & 0xFFFF;
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    // First step from a cell along a shortest path to the target on which no cell is blocked,
+    // so the path is as short as the one A* would find. Each step is checked by going down the
+    // field to the target. Returns -1 when the target is unreachable or already reached, or when
+    // no descent gets past the other players, the caller then has to search around them.
+    public int nextStep(int target, int from, Terrain terrain) {
+        final var field = field(target);
+        final var distance = field[from] & 0xFFFF;
+        if (distance == UNREACHABLE || distance == 0) {
+            return -1;
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            final var neighbour = Cells.neighbour(from, direction, columns, cells);
+            if (neighbour >= 0 && (field[neighbour] & 0xFFFF) == distance - 1 && clear(field, neighbour, terrain)) {
+                return neighbour;
+            }
+        }
+        return -1;
+    }
+
+    // Whether some way down the field from the cell to its source avoids every blocked cell.
+    // Takes the first free cell one step closer each time, so a descent that runs into players
+    // is not retried along another branch.
+    private boolean clear(short[] field, int cell, Terrain terrain) {
+        if (terrain.blocked(cell)) {
+            return false;
+        }
+        for (var distance = field[cell] & 0xFFFF; distance > 0; distance--) {
+            var closer = -1;
+            for (int direction = 0; direction < 4 && closer < 0; direction++) {
+                final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+                if (neighbour >= 0 && (field[neighbour] & 0xFFFF) == distance - 1 && !terrain.blocked(neighbour)) {
+                    closer = neighbour;
+                }
+            }
+            if (closer < 0) {
+                return false;
+            }
+            cell = closer;
+        }
+        return true;
+    }
+
+    // Distances from the source to every cell, searched on first use. The caller must not
+    // write to the array.
+    private short[] field(int source) {
+        final CompletableFuture<short[]> search;
+        final boolean searching;
+        lock.lock();
+        try {
+            final var slot = slotOf[source];
+            if (slot >= 0) {
+                unlink(slot);
+                pushFront(slot);
+                return fields[slot];
+            }
+            final var running = searches.get(source);
+            searching = running == null;
+            search = searching ? new CompletableFuture<>() : running;
+            if (searching) {
+                searches.put(source, search);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!searching) {
+            return search.join();
+        }
+        try {
+            final var field = new Flood().search(source);
+            lock.lock();
+            try {
+                final var slot = allocate(source);
+                fields[slot] = field;
+                pushFront(slot);
+                computed++;
+            } finally {
+                searches.remove(source);
+                lock.unlock();
+            }
+            search.complete(field);
+            return field;
+        } catch (RuntimeException | Error e) {
+            lock.lock();
+            try {
+                searches.remove(source);
+            } finally {
+                lock.unlock();
+            }
+            search.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public boolean cached(int source) {
+        lock.lock();
+        try {
+            return slotOf[source] >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of fields kept before the least recently used one is dropped
+    public int capacity() {
+        return fields.length;
+    }
+
+    public long computed() {
+        lock.lock();
+        try {
+            return computed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long evicted() {
+        lock.lock();
+        try {
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return 2L * cells * used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A slot for the cell's field, the least recently used one once all are taken. Its old
+    // field may still be read by a caller that fetched it, so the caller sets a new array.
+    private int allocate(int cell) {
+        final int slot;
+        if (used < fields.length) {
+            slot = used++;
+        } else {
+            slot = tail;
+            unlink(slot);
+            slotOf[source[slot]] = -1;
+            evicted++;
+        }
+        source[slot] = cell;
+        slotOf[cell] = slot;
+        return slot;
+    }
+
+    private void unlink(int slot) {
+        final var before = previous[slot];
+        final var after = next[slot];
+        if (before >= 0) {
+            next[before] = after;
+        } else {
+            head = after;
+        }
+        if (after >= 0) {
+            previous[after] = before;
+        } else {
+            tail = before;
+        }
+    }
+
+    private void pushFront(int slot) {
+        previous[slot] = -1;
+        next[slot] = head;
+        if (head >= 0) {
+            previous[head] = slot;
+        }
+        head = slot;
+        if (tail < 0) {
+            tail = slot;
+        }
+    }
+
+    // Breadth-first search level by level over whole words: every cell of a level spreads to its
+    // four neighbours by shifting its word a column either way and copying it to the rows above
+    // and below, so a word of 64 cells takes a handful of operations. Only the words the level
+    // touches are visited. Each search has scratch of its own, several may run at once.
+    private final class Flood {
+        // Cells reached so far (rocks count as reached), the cells of the current and next level
+        // and the indexes of their words that are not empty
+        private final long[] reached = new long[rows * rowWords];
+        private long[] level = new long[rows * rowWords];
+        private long[] nextLevel = new long[rows * rowWords];
+        private int[] levelWords = new int[rows * rowWords];
+        private int[] nextLevelWords = new int[rows * rowWords];
+
+        private short[] search(int source) {
+            final var field = new short[cells];
+            Arrays.fill(field, (short) UNREACHABLE);
+            if (cave.rock(source)) {
+                return field;
+            }
+            cave.copyRocks(reached);
+            final var sourceRow = source / columns;
+            final var sourceColumn = source - sourceRow * columns;
+            final var sourceWord = sourceRow * rowWords + (sourceColumn >>> 6);
+            field[source] = 0;
+            reached[sourceWord] |= 1L << sourceColumn;
+            level[sourceWord] = 1L << sourceColumn;
+            levelWords[0] = sourceWord;
+            var levelCount = 1;
+            for (int distance = 1; levelCount > 0 && distance < UNREACHABLE; distance++) {
+                // Paths longer than an unsigned short can hold are treated as unreachable
+                var nextCount = 0;
+                for (int i = 0; i < levelCount; i++) {
+                    final var word = levelWords[i];
+                    final var bits = level[word];
+                    level[word] = 0;
+                    final var row = word / rowWords;
+                    final var column = word - row * rowWords;
+                    nextCount = spread(word, bits << 1 | bits >>> 1, nextCount);
+                    if (column > 0) {
+                        nextCount = spread(word - 1, bits << 63, nextCount);
+                    }
+                    if (column < rowWords - 1) {
+                        nextCount = spread(word + 1, bits >>> 63, nextCount);
+                    }
+                    if (row > 0) {
+                        nextCount = spread(word - rowWords, bits, nextCount);
+                    }
+                    if (row < rows - 1) {
+                        nextCount = spread(word + rowWords, bits, nextCount);
+                    }
+                }
+                for (int i = 0; i < nextCount; i++) {
+                    final var word = nextLevelWords[i];
+                    final var base = word / rowWords * columns + (word % rowWords << 6);
+                    var bits = nextLevel[word];
+                    while (bits != 0) {
+                        field[base + Long.numberOfTrailingZeros(bits)] = (short) distance;
+                        bits &= bits - 1;
+                    }
+                }
+                final var words = level;
+                level = nextLevel;
+                nextLevel = words;
+                final var indexes = levelWords;
+                levelWords = nextLevelWords;
+                nextLevelWords = indexes;
+                levelCount = nextCount;
+            }
+            return field;
+        }
+
+        // Adds the cells not reached yet to the next level, noting the word the first time it gets any
+        private int spread(int word, long bits, int nextCount) {
+            bits &= ~reached[word];
+            if (bits == 0) {
+                return nextCount;
+            }
+            if (nextLevel[word] == 0) {
+                nextLevelWords[nextCount++] = word;
+            }
+            nextLevel[word] |= bits;
+            reached[word] |= bits;
+            return nextCount;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package example.path;
+
+import example.domain.game.Direction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+
+// HPA*: searches the cave's ClusterGraph instead of the grid, with the start and the target
+// linked to the entrances of their clusters, then plans only the first leg (start to the first
+// entrance, or to the target when it is that close) with A* on the live terrain inside the
+// start cluster. The legs after it are expanded from the graph only if the caller reads past
+// the first leg, and a PathBuffer gets the first leg only, the rest counted in its size. Paths are shortest on the bare cave up to the choice of entrances; players
+// and health are only seen by the first leg. When players block the first leg the flat A*
+// plans on the whole terrain instead, counted in fallbacks().
+// Sessions hand over the shared graph of their cave with clusters(); without one the planner
+// builds its own on first use.
+public final class HierarchicalPlanner implements Planner {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalPlanner.class);
+
+    private final int clusterSize;
+    private final AStar flat = new AStar();
+    private final Bounded bounded = new Bounded();
+    private ClusterGraph graph;
+    private int columns;
+
+    // Abstract search over the graph's nodes, then the start and the target
+    private int capacity;
+    private int generation;
+    private int[] g = new int[0];
+    private int[] f = new int[0];
+    private int[] parent = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    // Distances inside the start and target clusters, indexed by ClusterGraph.local
+    private int[] startDistance = new int[0];
+    private int[] targetDistance = new int[0];
+    private int[] queue = new int[0];
+
+    private long expanded;
+    private long fallbacks;
+
+    public HierarchicalPlanner(int clusterSize) {
+        this.clusterSize = clusterSize;
+    }
+
+    // The graph for the cave the next calls plan on
+    public void clusters(ClusterGraph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        final var goal = route(terrain, start, target);
+        if (goal < 0) {
+            return Collections.emptyList();
+        }
+
+        // Cells along the abstract path, the start first; an entrance at the start is skipped
+        var count = 0;
+        for (int node = goal; node >= 0; node = parent[node]) {
+            count++;
+        }
+        final var waypoints = new int[count];
+        for (int node = goal, i = count - 1; node >= 0; node = parent[node], i--) {
+            waypoints[i] = cell(node, start, target);
+        }
+        final var next = waypoints[1] == start ? 2 : 1;
+        final var nextNode = nodeAt(goal, count - 1 - next);
+
+        bounded.around(terrain, graph, start, waypoints[next]);
+        final var firstLeg = flat.findPath(bounded, start, waypoints[next]);
+        if (firstLeg.isEmpty()) {
+            fallbacks++;
+            return flat.findPath(terrain, start, target);
+        }
+        return new HierarchicalPath(graph, firstLeg, Arrays.copyOfRange(waypoints, next, count), g[goal] - g[nextNode]);
+    }
+
+    @Override
+    public void findPath(Terrain terrain, int start, int target, PathBuffer path) {
+        final var goal = route(terrain, start, target);
+        if (goal < 0) {
+            path.clear();
+            return;
+        }
+        // The node after the start on the abstract path, past an entrance at the start
+        final var startNode = graph.nodes();
+        var after = -1;
+        var next = goal;
+        while (parent[next] != startNode) {
+            after = next;
+            next = parent[next];
+        }
+        if (cell(next, start, target) == start) {
+            next = after;
+        }
+
+        bounded.around(terrain, graph, start, cell(next, start, target));
+        flat.findPath(bounded, start, cell(next, start, target), path);
+        if (path.isEmpty()) {
+            fallbacks++;
+            flat.findPath(terrain, start, target, path);
+            return;
+        }
+        path.rest(g[goal] - g[next]);
+    }
+
+    @Override
+    public long expanded() {
+        return expanded + flat.expanded();
+    }
+
+    // Calls where players blocked the first leg and the whole terrain was searched
+    public long fallbacks() {
+        return fallbacks;
+    }
+
+    // The abstract path from the start to the target, the target's node id or -1 when there is none
+    private int route(Terrain terrain, int start, int target) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells || start == target) {
+            return -1;
+        }
+        this.columns = columns;
+        if (graph == null || !graph.fits(terrain.rows(), columns)) {
+            graph = ClusterGraph.build(terrain.rows(), columns, terrain::rock, clusterSize, ForkJoinPool.commonPool());
+            logger.info("Built {}", graph);
+        }
+        return search(start, target);
+    }
+
+    // A* over the graph, returns the target's node id or -1 when the graph has no path
+    private int search(int start, int target) {
+        final var nodes = graph.nodes();
+        final var startNode = nodes;
+        final var targetNode = nodes + 1;
+        prepare(nodes + 2);
+        final var startCluster = graph.cluster(start);
+        final var targetCluster = graph.cluster(target);
+        graph.search(start, startDistance, queue);
+        graph.search(target, targetDistance, queue);
+
+        g[startNode] = 0;
+        f[startNode] = Cells.distance(start, target, columns);
+        parent[startNode] = -1;
+        openStamp[startNode] = generation;
+        push(startNode);
+        while (heapSize > 0) {
+            final var current = pop();
+            if (current == targetNode) {
+                return current;
+            }
+            closedStamp[current] = generation;
+            expanded++;
+
+            if (current == startNode) {
+                final var first = graph.firstNode(startCluster);
+                for (int i = 0; i < graph.nodeCount(startCluster); i++) {
+                    relax(current, first + i, startDistance[graph.local(graph.nodeCell(first + i))], target);
+                }
+                if (startCluster == targetCluster) {
+                    relax(current, targetNode, startDistance[graph.local(target)], target);
+                }
+                continue;
+            }
+            final var cluster = graph.cluster(graph.nodeCell(current));
+            final var first = graph.firstNode(cluster);
+            final var index = current - first;
+            for (int i = 0; i < graph.nodeCount(cluster); i++) {
+                if (i != index) {
+                    relax(current, first + i, graph.distance(cluster, index, i), target);
+                }
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                final var across = graph.across(current, direction);
+                if (across >= 0) {
+                    relax(current, across, 1, target);
+                }
+            }
+            if (cluster == targetCluster) {
+                relax(current, targetNode, targetDistance[graph.local(graph.nodeCell(current))], target);
+            }
+        }
+        return -1;
+    }
+
+    private void relax(int from, int to, int distance, int target) {
+        if (distance < 0 || closedStamp[to] == generation) {
+            return;
+        }
+        final var cost = g[from] + distance;
+        final var open = openStamp[to] == generation;
+        if (!open || cost < g[to]) {
+            g[to] = cost;
+            f[to] = cost + (to >= graph.nodes() ? 0 : Cells.distance(graph.nodeCell(to), target, columns));
+            parent[to] = from;
+            if (open) {
+                siftUp(heapIndex[to]);
+            } else {
+                openStamp[to] = generation;
+                push(to);
+            }
+        }
+    }
+
+    private int cell(int node, int start, int target) {
+        final var nodes = graph.nodes();
+        return node == nodes ? start : node == nodes + 1 ? target : graph.nodeCell(node);
+    }
+
+    // The node steps back from the goal along the parents
+    private int nodeAt(int goal, int steps) {
+        var node = goal;
+        for (int i = 0; i < steps; i++) {
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void prepare(int nodes) {
+        if (nodes > capacity) {
+            capacity = nodes;
+            g = new int[nodes];
+            f = new int[nodes];
+            parent = new int[nodes];
+            openStamp = new int[nodes];
+            closedStamp = new int[nodes];
+            heap = new int[nodes];
+            heapIndex = new int[nodes];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        final var clusterCells = graph.localCells();
+        if (startDistance.length != clusterCells) {
+            startDistance = new int[clusterCells];
+            targetDistance = new int[clusterCells];
+            queue = new int[clusterCells];
+        }
+    }
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final var top = heap[0];
+        final var last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        final var node = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentNode = heap[parentIndex];
+            if (f[node] >= f[parentNode]) {
+                break;
+            }
+            heap[index] = parentNode;
+            heapIndex[parentNode] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    private void siftDown(int index) {
+        final var node = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && f[heap[right]] < f[heap[child]]) {
+                child = right;
+            }
+            if (f[heap[child]] >= f[node]) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    // The live terrain with everything outside the start cluster (widened to take in the
+    // first waypoint, which may be just across the border) blocked
+    private static final class Bounded implements Terrain {
+        private Terrain terrain;
+        private int columns;
+        private int rowFrom;
+        private int rowTo;
+        private int columnFrom;
+        private int columnTo;
+
+        private void around(Terrain terrain, ClusterGraph graph, int start, int waypoint) {
+            this.terrain = terrain;
+            this.columns = terrain.columns();
+            final var size = graph.clusterSize();
+            final var row = start / columns;
+            final var column = start - row * columns;
+            final var waypointRow = waypoint / columns;
+            final var waypointColumn = waypoint - waypointRow * columns;
+            rowFrom = Math.min(row - row % size, waypointRow);
+            rowTo = Math.max(row - row % size + size - 1, waypointRow);
+            columnFrom = Math.min(column - column % size, waypointColumn);
+            columnTo = Math.max(column - column % size + size - 1, waypointColumn);
+        }
+
+        @Override
+        public int rows() {
+            return terrain.rows();
+        }
+
+        @Override
+        public int columns() {
+            return columns;
+        }
+
+        @Override
+        public boolean rock(int cell) {
+            return terrain.rock(cell);
+        }
+
+        @Override
+        public boolean blocked(int cell) {
+            final var row = cell / columns;
+            final var column = cell - row * columns;
+            return row < rowFrom || row > rowTo || column < columnFrom || column > columnTo || terrain.blocked(cell);
+        }
+
+        @Override
+        public int stepCost(int cell) {
+            return terrain.stepCost(cell);
+        }
+
+        @Override
+        public int occupiedCount() {
+            return terrain.occupiedCount();
+        }
+
+        @Override
+        public int occupiedCell(int index) {
+            return terrain.occupiedCell(index);
+        }
+    }
+
+    // The first leg as planned, the rest walked through the clusters on first read
+    private static final class HierarchicalPath extends AbstractList<Direction> implements RandomAccess {
+        private final ClusterGraph graph;
+        private final List<Direction> firstLeg;
+        private final int[] waypoints;
+        private final int rest;
+        private Direction[] refined;
+
+        private HierarchicalPath(ClusterGraph graph, List<Direction> firstLeg, int[] waypoints, int rest) {
+            this.graph = graph;
+            this.firstLeg = firstLeg;
+            this.waypoints = waypoints;
+            this.rest = rest;
+        }
+
+        @Override
+        public Direction get(int index) {
+            if (index < firstLeg.size()) {
+                return firstLeg.get(index);
+            }
+            if (refined == null) {
+                refined = new Direction[rest];
+                var written = 0;
+                for (int i = 1; i < waypoints.length; i++) {
+                    final var from = waypoints[i - 1];
+                    final var to = waypoints[i];
+                    if (Cells.distance(from, to, graph.columns()) == 1) {
+                        refined[written++] = Cells.direction(from, to, graph.columns());
+                    } else {
+                        written += graph.walk(from, to, refined, written);
+                    }
+                }
+            }
+            return refined[index - firstLeg.size()];
+        }
+
+        @Override
+        public int size() {
+            return firstLeg.size() + rest;
+        }
+    }
+}
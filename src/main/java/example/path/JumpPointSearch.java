@@ -0,0 +1,331 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Jump Point Search on the 4-connected grid (JPS4). Of all equally short paths through a
+// stretch of free, cost-1 cells only the canonical one is searched: horizontal moves first,
+// and a vertical run turns sideways only where a blocked cell next to it forces the turn.
+// Instead of pushing every cell on the open list, straight runs are scanned until something
+// interesting: the target, a forced turn, or a cell with another step cost. Cells with another
+// step cost (health) are treated like extra targets: every scan stops on them and they are
+// expanded in all four directions, so a path through one is never pruned away. Other players
+// are blocked cells like rocks.
+// Paths are optimal for the step costs, so with health on the map they can be cheaper than
+// AStar's, whose plain Manhattan heuristic then overestimates. Here a path through k health
+// cells saves k steps but is at least as long as the k-th smallest detour via a health cell,
+// which bounds the heuristic from below, and a closed cell is reopened when a cheaper way to
+// it turns up.
+public final class JumpPointSearch implements Planner {
+    private static final int ALL = 0b1111;
+    private static final int VERTICAL = 0b0011;
+    private static final int[] OPPOSITE = {1, 0, 3, 2};
+
+    private Terrain terrain;
+    private int columns;
+    private int cells;
+    private int start;
+    private int target;
+    private int[] health = new int[16];
+    private int healthCount;
+    private int[] detours = new int[16];
+
+    private int capacity;
+    private int generation;
+    private int[] g = new int[0];
+    private int[] f = new int[0];
+    private int[] parent = new int[0];
+    private byte[] arrivals = new byte[0];  // bit per direction of a cheapest jump onto the cell
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    private long expanded;
+    private final PathBuffer path = new PathBuffer();
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        if (!search(terrain, start, target)) {
+            return Collections.emptyList();
+        }
+        reconstructPath(path);
+        return path.toList();
+    }
+
+    @Override
+    public void findPath(Terrain terrain, int start, int target, PathBuffer path) {
+        if (search(terrain, start, target)) {
+            reconstructPath(path);
+        } else {
+            path.clear();
+        }
+    }
+
+    // True when the target was reached, the jump points are then in the parents
+    private boolean search(Terrain terrain, int start, int target) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells) {
+            return false;
+        }
+        this.terrain = terrain;
+        this.columns = columns;
+        this.cells = cells;
+        this.start = start;
+        this.target = target;
+        this.healthCount = 0;
+        for (int i = 0; i < terrain.occupiedCount(); i++) {
+            final var cell = terrain.occupiedCell(i);
+            if (terrain.stepCost(cell) < 1) {
+                if (healthCount == health.length) {
+                    health = Arrays.copyOf(health, healthCount * 2);
+                    detours = new int[healthCount * 2];
+                }
+                health[healthCount++] = cell;
+            }
+        }
+        prepare(cells);
+
+        g[start] = 0;
+        f[start] = heuristic(start);
+        arrivals[start] = ALL;
+        openStamp[start] = generation;
+        push(start);
+
+        try {
+            while (heapSize > 0) {
+                final var current = pop();
+                if (current == target) {
+                    return true;
+                }
+                closedStamp[current] = generation;
+                expanded++;
+                expand(current);
+            }
+            return false;
+        } finally {
+            this.terrain = null;
+        }
+    }
+
+    @Override
+    public long expanded() {
+        return expanded;
+    }
+
+    // A cell reached by equally cheap jumps from several directions gets the successors of each
+    private void expand(int cell) {
+        final var arrivals = cell == start || terrain.stepCost(cell) != 1 ? ALL : this.arrivals[cell];
+        var directions = arrivals & ~VERTICAL;
+        if (directions != 0) {
+            directions |= VERTICAL;
+        }
+        for (int from = 0; from < 2; from++) {
+            if ((arrivals & 1 << from) != 0) {
+                directions |= 1 << from;
+                final var behind = Cells.neighbour(cell, OPPOSITE[from], columns, cells);
+                for (int side = 2; side < 4; side++) {
+                    if (forced(cell, behind, side)) {
+                        directions |= 1 << side;
+                    }
+                }
+            }
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            if ((directions & 1 << direction) != 0) {
+                successor(cell, direction);
+            }
+        }
+    }
+
+    private void successor(int cell, int direction) {
+        final var jumpPoint = (1 << direction & VERTICAL) != 0 ? jumpVertical(cell, direction) : jumpHorizontal(cell, direction);
+        if (jumpPoint < 0 || jumpPoint == start) {
+            return;
+        }
+        // Every cell passed on the way costs a full step, the scan stops on anything cheaper
+        final var cost = g[cell] + Cells.distance(cell, jumpPoint, columns) - 1 + terrain.stepCost(jumpPoint);
+        final var seen = openStamp[jumpPoint] == generation;
+        final var closed = closedStamp[jumpPoint] == generation;
+        if (!seen || cost < g[jumpPoint]) {
+            g[jumpPoint] = cost;
+            f[jumpPoint] = cost + heuristic(jumpPoint);
+            parent[jumpPoint] = cell;
+            arrivals[jumpPoint] = (byte) (1 << direction);
+        } else if (cost == g[jumpPoint] && (arrivals[jumpPoint] & 1 << direction) == 0) {
+            // Another way in prunes differently, it needs expanding too
+            arrivals[jumpPoint] |= (byte) (1 << direction);
+        } else {
+            return;
+        }
+        if (!seen) {
+            openStamp[jumpPoint] = generation;
+            push(jumpPoint);
+        } else if (closed) {
+            closedStamp[jumpPoint] = 0;
+            push(jumpPoint);
+        } else {
+            siftUp(heapIndex[jumpPoint]);
+        }
+    }
+
+    // Scans up or down from the cell, -1 when the run ends at a blocked cell or the edge
+    private int jumpVertical(int cell, int direction) {
+        var previous = cell;
+        while (true) {
+            final var next = Cells.neighbour(previous, direction, columns, cells);
+            if (next < 0 || terrain.blocked(next)) {
+                return -1;
+            }
+            if (next == target || terrain.stepCost(next) != 1 || forced(next, previous, 2) || forced(next, previous, 3)) {
+                return next;
+            }
+            previous = next;
+        }
+    }
+
+    // Scans left or right from the cell, stopping where a vertical run would find a jump point
+    private int jumpHorizontal(int cell, int direction) {
+        var current = cell;
+        while (true) {
+            current = Cells.neighbour(current, direction, columns, cells);
+            if (current < 0 || terrain.blocked(current)) {
+                return -1;
+            }
+            if (current == target || terrain.stepCost(current) != 1 || jumpVertical(current, 0) >= 0 || jumpVertical(current, 1) >= 0) {
+                return current;
+            }
+        }
+    }
+
+    // A vertical run turns sideways at the cell only if the cell beside the previous one is
+    // blocked, otherwise turning one step earlier is the canonical path
+    private boolean forced(int cell, int previous, int side) {
+        final var beside = Cells.neighbour(cell, side, columns, cells);
+        if (beside < 0 || terrain.blocked(beside)) {
+            return false;
+        }
+        final var besidePrevious = Cells.neighbour(previous, side, columns, cells);
+        return besidePrevious >= 0 && terrain.blocked(besidePrevious);
+    }
+
+    // Manhattan distance plus the least of (k-th smallest detour via a health cell - k), at
+    // least 0. A detour of healthCount or more never lowers it, so only shorter ones are sorted.
+    private int heuristic(int cell) {
+        final var distance = Cells.distance(cell, target, columns);
+        var count = 0;
+        for (int i = 0; i < healthCount; i++) {
+            final var detour = Cells.distance(cell, health[i], columns) + Cells.distance(health[i], target, columns) - distance;
+            if (detour < healthCount) {
+                detours[count++] = detour;
+            }
+        }
+        Arrays.sort(detours, 0, count);
+        var saving = 0;
+        for (int k = 0; k < count; k++) {
+            saving = Math.min(saving, detours[k] - (k + 1));
+        }
+        return Math.max(0, distance + saving);
+    }
+
+    private void prepare(int cells) {
+        if (cells > capacity) {
+            capacity = cells;
+            g = new int[cells];
+            f = new int[cells];
+            parent = new int[cells];
+            arrivals = new byte[cells];
+            openStamp = new int[cells];
+            closedStamp = new int[cells];
+            heap = new int[cells];
+            heapIndex = new int[cells];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+    }
+
+    // Jump points are joined by straight runs, walked back from the target
+    private void reconstructPath(PathBuffer path) {
+        var length = 0;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            length += Cells.distance(parent[cell], cell, columns);
+        }
+        path.resize(length);
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            final var from = parent[cell];
+            final var step = from / columns == cell / columns ? Integer.signum(cell - from) : Integer.signum(cell - from) * columns;
+            final var direction = Cells.direction(from, from + step, columns);
+            for (int steps = Cells.distance(from, cell, columns); steps > 0; steps--) {
+                path.set(--length, direction);
+            }
+        }
+    }
+
+    // Lower f first, then the one closer to the target
+    private boolean less(int a, int b) {
+        return f[a] != f[b] ? f[a] < f[b] : g[a] > g[b];
+    }
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final var top = heap[0];
+        final var last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        final var cell = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentCell = heap[parentIndex];
+            if (!less(cell, parentCell)) {
+                break;
+            }
+            heap[index] = parentCell;
+            heapIndex[parentCell] = index;
+            index = parentIndex;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        final var cell = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
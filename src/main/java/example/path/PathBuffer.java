@@ -0,0 +1,76 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Directions of a path in an array that is kept between searches, so planning a move every
+// tick produces no garbage once the array is long enough. Planners fill it back to front.
+// A planner may plan only the start of the path and count the steps after it, see rest().
+public final class PathBuffer {
+    private Direction[] directions = new Direction[64];
+    private int size;
+    private int rest;
+
+    // Length of the whole path, planned or not
+    public int size() {
+        return size + rest;
+    }
+
+    // Directions planned, from the first step
+    public int planned() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Direction get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return directions[index];
+    }
+
+    // First step of the path, null when it is empty
+    public Direction first() {
+        return size > 0 ? directions[0] : null;
+    }
+
+    // A copy of the planned directions for code that keeps them
+    public List<Direction> toList() {
+        return List.of(Arrays.copyOf(directions, size));
+    }
+
+    public void clear() {
+        size = 0;
+        rest = 0;
+    }
+
+    // Makes the path length steps long, to be filled with set()
+    void resize(int length) {
+        if (length > directions.length) {
+            directions = new Direction[Math.max(length, directions.length * 2)];
+        }
+        size = length;
+        rest = 0;
+    }
+
+    // The path goes on for this many steps past the planned ones
+    void rest(int steps) {
+        rest = steps;
+    }
+
+    void set(int index, Direction direction) {
+        directions[index] = direction;
+    }
+
+    void copyOf(List<Direction> path) {
+        resize(path.size());
+        for (int i = 0; i < size; i++) {
+            directions[i] = path.get(i);
+        }
+    }
+}
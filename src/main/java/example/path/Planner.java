@@ -0,0 +1,71 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Finds a path to a target (gold or health) omitting rocks and other players if possible
+public interface Planner extends AutoCloseable {
+    // Directions from start to target, empty if there is none
+    List<Direction> findPath(Terrain terrain, int start, int target);
+
+    // The same path written into a buffer the caller keeps; planners that reconstruct straight
+    // into it allocate nothing per call
+    default void findPath(Terrain terrain, int start, int target, PathBuffer path) {
+        path.copyOf(findPath(terrain, start, target));
+    }
+
+    // Nodes expanded since the planner was created
+    long expanded();
+
+    // Searches cut short by a time budget since the planner was created
+    default long deadlineHits() {
+        return 0;
+    }
+
+    // A new cave arrived: forget anything kept from earlier searches, even if the cave has the
+    // same size its rocks may differ
+    default void reset() {
+    }
+
+    // Stops whatever the planner runs in the background, it is not called again afterwards
+    @Override
+    default void close() {
+    }
+
+    // Planner selected with -Dmazev.planner, A* unless told otherwise. The anytime and
+    // spacetime planners get -Dmazev.planner.budgetMicros per call (5000 by default).
+    static Planner fromProperties() {
+        return create(System.getProperty("mazev.planner", "astar"));
+    }
+
+    static Planner create(String name) {
+        return switch (name) {
+            case "astar" -> new AStar();
+            case "incremental" -> new DStarLite();
+            case "jps" -> new JumpPointSearch();
+            case "hierarchical" -> new HierarchicalPlanner(ClusterGraph.DEFAULT_CLUSTER_SIZE);
+            case "anytime" -> new AnytimePlanner(TimeUnit.MICROSECONDS.toNanos(Long.getLong("mazev.planner.budgetMicros", 5_000)));
+            case "spacetime" -> new SpaceTimeAStar(TimeUnit.MICROSECONDS.toNanos(Long.getLong("mazev.planner.budgetMicros", 5_000)));
+            case "compare" -> new ComparingPlanner(new AStar(), new DStarLite());
+            default -> throw new IllegalArgumentException("Unknown planner: " + name);
+        };
+    }
+
+    // Sum of step costs along a path, -1 if it walks into a blocked cell
+    static int cost(Terrain terrain, int start, List<Direction> path) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        var cell = start;
+        var cost = 0;
+        for (final var direction : path) {
+            cell = Cells.neighbour(cell, direction.ordinal(), columns, cells);
+            if (cell < 0 || terrain.blocked(cell)) {
+                return -1;
+            }
+            cost += terrain.stepCost(cell);
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,300 @@
+package example.path;
+
+import example.domain.game.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A* over (cell, step) for a TimedTerrain, so a path may go round a cell that is dangerous
+// now and through it once the danger is likely past. Steps beyond the terrain's horizon
+// share one layer, where the search is plain A* on the terrain's settled costs; with a
+// plain Terrain there is only that layer. A state is layer * cells + cell. Only the states a
+// search reaches get a node, found through an open-addressing table stamped and reused like
+// AStar's arrays, so memory follows the states the budget lets it reach rather than
+// (horizon + 1) * cells. Each call gets a time budget; when it runs out the path leads to the
+// state expanded closest to the target, the way AnytimePlanner does.
+public final class SpaceTimeAStar implements Planner {
+    // Expansions between two looks at the clock
+    private static final int CHECK_INTERVAL = 64;
+    private static final int CLOSED = -1;
+
+    private final long budgetNanos;
+
+    // State -> node, slots of another generation are empty
+    private int generation;
+    private int[] slotStamp = new int[1024];
+    private int[] slotNode = new int[1024];
+    private int slotBits = 10;
+
+    // Nodes in the order their states were reached
+    private int nodes;
+    private int[] state = new int[512];
+    private int[] g = new int[512];
+    private int[] f = new int[512];
+    private int[] parent = new int[512];     // node of the state reached from, -1 for the start
+    private int[] heapIndex = new int[512];  // CLOSED once expanded
+    private int[] heap = new int[512];
+    private int heapSize;
+
+    private int cells;
+    private int columns;
+    private int start;
+    private int best;
+    private long expanded;
+    private long deadlineHits;
+    private final PathBuffer path = new PathBuffer();
+
+    public SpaceTimeAStar(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Override
+    public List<Direction> findPath(Terrain terrain, int start, int target) {
+        findPath(terrain, start, target, path);
+        return path.isEmpty() ? Collections.emptyList() : new ArrayList<>(path.toList());
+    }
+
+    @Override
+    public void findPath(Terrain terrain, int start, int target, PathBuffer path) {
+        if (search(terrain, start, target)) {
+            reconstructPath(path);
+        } else {
+            path.clear();
+        }
+    }
+
+    @Override
+    public long expanded() {
+        return expanded;
+    }
+
+    @Override
+    public long deadlineHits() {
+        return deadlineHits;
+    }
+
+    // True when best holds the target or, after the budget ran out, the state closest to it
+    private boolean search(Terrain terrain, int start, int target) {
+        final var columns = terrain.columns();
+        final var cells = terrain.rows() * columns;
+        if (target < 0 || target >= cells || start < 0 || start >= cells) {
+            return false;
+        }
+        final var timed = terrain instanceof TimedTerrain t ? t : null;
+        final var horizon = timed != null ? Math.max(1, timed.horizon()) : 0;
+        this.cells = cells;
+        this.columns = columns;
+        prepare();
+
+        final var targetRow = target / columns;
+        final var targetColumn = target - targetRow * columns;
+        final var deadline = System.nanoTime() + budgetNanos;
+
+        this.start = add(start, 0, distance(start, columns, targetRow, targetColumn), -1);
+        best = this.start;
+
+        var untilCheck = CHECK_INTERVAL;
+        while (heapSize > 0) {
+            if (--untilCheck == 0) {
+                if (System.nanoTime() - deadline >= 0) {
+                    deadlineHits++;
+                    return best != start;
+                }
+                untilCheck = CHECK_INTERVAL;
+            }
+            final var current = pop();
+            final var layer = state[current] / cells;
+            final var cell = state[current] - layer * cells;
+            if (cell == target) {
+                best = current;
+                return true;
+            }
+            heapIndex[current] = CLOSED;
+            expanded++;
+            final var h = f[current] - g[current];
+            final var bestH = f[best] - g[best];
+            if (h < bestH || (h == bestH && g[current] < g[best])) {
+                best = current;
+            }
+
+            final var step = layer + 1;
+            final var next = Math.min(step, horizon) * cells;
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+                if (neighbour < 0) {
+                    continue;
+                }
+                final var node = find(next + neighbour);
+                if (node >= 0 && heapIndex[node] == CLOSED) {
+                    continue;
+                }
+                final int cost;
+                if (timed != null && step <= horizon) {
+                    cost = timed.stepCost(neighbour, step);
+                } else {
+                    cost = terrain.blocked(neighbour) ? -1 : terrain.stepCost(neighbour);
+                }
+                if (cost < 0) {
+                    continue;
+                }
+
+                final var neighbourDistance = g[current] + cost;
+                if (node < 0) {
+                    add(next + neighbour, neighbourDistance, neighbourDistance + distance(neighbour, columns, targetRow, targetColumn), current);
+                } else if (neighbourDistance < g[node]) {
+                    f[node] += neighbourDistance - g[node];
+                    g[node] = neighbourDistance;
+                    parent[node] = current;
+                    siftUp(heapIndex[node]);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void prepare() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(slotStamp, 0);
+            generation = 1;
+        }
+        nodes = 0;
+        heapSize = 0;
+    }
+
+    // Node of the state, -1 when the search has not reached it
+    private int find(int key) {
+        final var mask = slotStamp.length - 1;
+        for (int slot = slot(key); slotStamp[slot] == generation; slot = (slot + 1) & mask) {
+            final var node = slotNode[slot];
+            if (state[node] == key) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    // A node for a state not reached before, pushed onto the open list
+    private int add(int key, int cost, int estimate, int from) {
+        if (nodes == state.length) {
+            final var length = nodes * 2;
+            state = Arrays.copyOf(state, length);
+            g = Arrays.copyOf(g, length);
+            f = Arrays.copyOf(f, length);
+            parent = Arrays.copyOf(parent, length);
+            heapIndex = Arrays.copyOf(heapIndex, length);
+            heap = Arrays.copyOf(heap, length);
+        }
+        if (2 * (nodes + 1) > slotStamp.length) {
+            rehash();
+        }
+        final var node = nodes++;
+        state[node] = key;
+        g[node] = cost;
+        f[node] = estimate;
+        parent[node] = from;
+        insert(key, node);
+        push(node);
+        return node;
+    }
+
+    // Doubles the table, keeping it at most half full
+    private void rehash() {
+        slotBits++;
+        slotStamp = new int[1 << slotBits];
+        slotNode = new int[1 << slotBits];
+        for (int node = 0; node < nodes; node++) {
+            insert(state[node], node);
+        }
+    }
+
+    private void insert(int key, int node) {
+        final var mask = slotStamp.length - 1;
+        var slot = slot(key);
+        while (slotStamp[slot] == generation) {
+            slot = (slot + 1) & mask;
+        }
+        slotStamp[slot] = generation;
+        slotNode[slot] = node;
+    }
+
+    // Fibonacci hashing, states next to each other land far apart
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> (32 - slotBits);
+    }
+
+    private static int distance(int cell, int columns, int targetRow, int targetColumn) {
+        final var row = cell / columns;
+        return Math.abs(row - targetRow) + Math.abs(cell - row * columns - targetColumn);
+    }
+
+    private void reconstructPath(PathBuffer path) {
+        var length = 0;
+        for (int node = best; node != start; node = parent[node]) {
+            length++;
+        }
+        path.resize(length);
+        for (int node = best; node != start; node = parent[node]) {
+            path.set(--length, Cells.direction(state[parent[node]] % cells, state[node] % cells, columns));
+        }
+    }
+
+    // Lower f first, then the one closer to the target
+    private boolean less(int a, int b) {
+        return f[a] != f[b] ? f[a] < f[b] : g[a] > g[b];
+    }
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        final var top = heap[0];
+        final var last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int index) {
+        final var node = heap[index];
+        while (index > 0) {
+            final var parentIndex = (index - 1) >>> 1;
+            final var parentNode = heap[parentIndex];
+            if (!less(node, parentNode)) {
+                break;
+            }
+            heap[index] = parentNode;
+            heapIndex[parentNode] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    private void siftDown(int index) {
+        final var node = heap[index];
+        final var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            final var right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], node)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+}
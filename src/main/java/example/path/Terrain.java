@@ -0,0 +1,22 @@
+package example.path;
+
+// Cell-indexed view of the cave the search runs on, cell = row * columns + column
+public interface Terrain {
+    int rows();
+
+    int columns();
+
+    // Rock, fixed for the whole game so any thread may read it
+    boolean rock(int cell);
+
+    // Rock or another player we must not step onto
+    boolean blocked(int cell);
+
+    // Cost of stepping onto the cell (health lowers it by 1)
+    int stepCost(int cell);
+
+    // Cells holding items or players this tick, the only ones that may differ from the bare cave
+    int occupiedCount();
+
+    int occupiedCell(int index);
+}
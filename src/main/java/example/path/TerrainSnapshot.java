@@ -0,0 +1,80 @@
+package example.path;
+
+import java.util.Arrays;
+
+// Copy of the cells of a Terrain that change from tick to tick, so another thread can search
+// it while the live terrain moves on. Rocks never change during a game and are read through.
+// Only the occupied cells are copied, the per-cell arrays are stamped and reused.
+final class TerrainSnapshot implements Terrain {
+    private static final byte BLOCKED = 1;
+
+    private Terrain live;
+    private int rows;
+    private int columns;
+    private int generation;
+    private int[] stamp = new int[0];
+    private byte[] state = new byte[0];  // BLOCKED | stepCost << 1 for occupied cells
+    private int[] occupied = new int[16];
+    private int occupiedCount;
+
+    void capture(Terrain live) {
+        this.live = live;
+        this.rows = live.rows();
+        this.columns = live.columns();
+        final var cells = rows * columns;
+        if (cells > stamp.length) {
+            stamp = new int[cells];
+            state = new byte[cells];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        occupiedCount = live.occupiedCount();
+        if (occupiedCount > occupied.length) {
+            occupied = new int[Math.max(occupiedCount, occupied.length * 2)];
+        }
+        for (int i = 0; i < occupiedCount; i++) {
+            final var cell = live.occupiedCell(i);
+            occupied[i] = cell;
+            stamp[cell] = generation;
+            state[cell] = (byte) ((live.blocked(cell) ? BLOCKED : 0) | live.stepCost(cell) << 1);
+        }
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int columns() {
+        return columns;
+    }
+
+    @Override
+    public boolean rock(int cell) {
+        return live.rock(cell);
+    }
+
+    @Override
+    public boolean blocked(int cell) {
+        return stamp[cell] == generation ? (state[cell] & BLOCKED) != 0 : live.rock(cell);
+    }
+
+    @Override
+    public int stepCost(int cell) {
+        return stamp[cell] == generation ? state[cell] >> 1 : 1;
+    }
+
+    @Override
+    public int occupiedCount() {
+        return occupiedCount;
+    }
+
+    @Override
+    public int occupiedCell(int index) {
+        return occupied[index];
+    }
+}
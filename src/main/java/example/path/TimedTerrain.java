@@ -0,0 +1,12 @@
+package example.path;
+
+// A Terrain whose costs depend on when a cell is entered, for planners that search over
+// (cell, step). The plain Terrain methods give the costs from the horizon on.
+public interface TimedTerrain extends Terrain {
+    // Steps ahead the costs differ for; from this step on they stay the same
+    int horizon();
+
+    // Cost of stepping onto the cell with the given step (1 is the next move), -1 when it
+    // cannot be entered then
+    int stepCost(int cell, int step);
+}
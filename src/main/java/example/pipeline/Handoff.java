@@ -0,0 +1,56 @@
+package example.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Single-producer, single-consumer slot where the newest item wins. An item the consumer has
+// not taken yet is replaced by the next one and counted as skipped. Mutable items are recycled
+// instead of allocated: publish() hands back one the producer may fill next, either the item it
+// just replaced or one the consumer gave back with release(), and null when there is none yet.
+public final class Handoff<T> {
+    private final AtomicReference<T> pending = new AtomicReference<>();
+    private final AtomicReference<T> spare = new AtomicReference<>();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile Thread consumer;
+    private volatile boolean closed;
+
+    public T publish(T item) {
+        final var previous = pending.getAndSet(item);
+        LockSupport.unpark(consumer);
+        if (previous != null) {
+            skipped.incrementAndGet();
+            return previous;
+        }
+        return spare.getAndSet(null);
+    }
+
+    // Waits for the next item, null once closed
+    public T take() {
+        consumer = Thread.currentThread();
+        while (true) {
+            final var item = pending.getAndSet(null);
+            if (item != null) {
+                return item;
+            }
+            if (closed) {
+                return null;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    // The consumer is done with an item it took
+    public void release(T item) {
+        spare.set(item);
+    }
+
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+    }
+
+    public long skipped() {
+        return skipped.get();
+    }
+}
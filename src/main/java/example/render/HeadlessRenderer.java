@@ -0,0 +1,14 @@
+package example.render;
+
+import example.state.GridIndex;
+
+// Renders nothing, for bots nobody is watching
+public final class HeadlessRenderer implements Renderer {
+    @Override
+    public void render(GridIndex index, int target) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,26 @@
+package example.render;
+
+import example.state.GridIndex;
+
+// Draws the game table. Implementations must return quickly: the game loop calls render()
+// right after sending its command and never waits for the terminal.
+public interface Renderer extends AutoCloseable {
+    void render(GridIndex index, int target);
+
+    @Override
+    void close();
+
+    // Renderer selected with -Dmazev.render: full (default), diff or none
+    static Renderer fromProperties() {
+        return create(System.getProperty("mazev.render", "full"));
+    }
+
+    static Renderer create(String name) {
+        return switch (name) {
+            case "none" -> new HeadlessRenderer();
+            case "full" -> new TerminalRenderer(false);
+            case "diff" -> new TerminalRenderer(true);
+            default -> throw new IllegalArgumentException("Unknown renderer: " + name);
+        };
+    }
+}
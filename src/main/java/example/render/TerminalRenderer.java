@@ -0,0 +1,204 @@
+package example.render;
+
+import example.state.GridIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Draws the game table on a background thread. The game loop only copies one glyph per cell
+// into a snapshot and publishes it; the render thread always takes the newest snapshot, so
+// frames the terminal could not keep up with are dropped instead of delaying the next move.
+// Each frame is built into one reusable byte buffer and written with a single call. In diff
+// mode only the rows that changed since the previous frame are redrawn, using cursor moves.
+public final class TerminalRenderer implements Renderer {
+    private static final Logger logger = LoggerFactory.getLogger(TerminalRenderer.class);
+    private static final byte[] GLYPHS = glyphs();
+    private static final byte[] CLEAR = "\u001b[2J".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean diff;
+    private final OutputStream out;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Three frames rotate between the game loop, the pending slot and the render thread
+    private final AtomicReference<Frame> pending = new AtomicReference<>();
+    private final AtomicReference<Frame> free = new AtomicReference<>();
+    private Frame back = new Frame();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Owned by the render thread
+    private byte[] drawn = new byte[0];
+    private int drawnRows;
+    private int drawnColumns;
+    private byte[] output = new byte[0];
+
+    public TerminalRenderer(boolean diff) {
+        this(diff, new FileOutputStream(FileDescriptor.out));
+    }
+
+    public TerminalRenderer(boolean diff, OutputStream out) {
+        this.diff = diff;
+        this.out = out;
+        this.thread = Thread.ofPlatform().daemon().name("renderer").start(this::run);
+    }
+
+    @Override
+    public void render(GridIndex index, int target) {
+        final var frame = back;
+        frame.capture(index, target);
+        final var previous = pending.getAndSet(frame);
+        if (previous != null) {
+            // The render thread has not picked up the previous frame yet, it is superseded
+            dropped.incrementAndGet();
+            back = previous;
+        } else {
+            final var spare = free.getAndSet(null);
+            back = spare != null ? spare : new Frame();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    // Frames replaced by a newer one before they were drawn
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            final var frame = pending.getAndSet(null);
+            if (frame == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                draw(frame);
+            } catch (IOException e) {
+                logger.warn("Rendering failed, switching it off", e);
+                running = false;
+            }
+            free.set(frame);
+        }
+    }
+
+    private void draw(Frame frame) throws IOException {
+        final var rows = frame.rows;
+        final var columns = frame.columns;
+        final var cells = rows * columns;
+        final var redrawAll = !diff || rows != drawnRows || columns != drawnColumns;
+        if (drawn.length < cells) {
+            drawn = new byte[cells];
+        }
+        // Worst case every row with its cursor move
+        final var capacity = CLEAR.length + (rows + 1) * (columns + 16);
+        if (output.length < capacity) {
+            output = new byte[capacity];
+        }
+
+        var length = 0;
+        if (diff && redrawAll) {
+            System.arraycopy(CLEAR, 0, output, 0, CLEAR.length);
+            length = CLEAR.length;
+        }
+        for (int row = 0; row < rows; row++) {
+            final var from = row * columns;
+            if (!redrawAll && Arrays.equals(frame.glyphs, from, from + columns, drawn, from, from + columns)) {
+                continue;
+            }
+            if (diff) {
+                length = cursor(output, length, row + 1);
+            }
+            System.arraycopy(frame.glyphs, from, output, length, columns);
+            length += columns;
+            if (!diff) {
+                output[length++] = '\n';
+            }
+        }
+        if (diff && length > 0) {
+            // Leave the cursor below the table
+            length = cursor(output, length, rows + 1);
+        }
+        System.arraycopy(frame.glyphs, 0, drawn, 0, cells);
+        drawnRows = rows;
+        drawnColumns = columns;
+
+        if (length > 0) {
+            out.write(output, 0, length);
+            out.flush();
+        }
+    }
+
+    // ESC [ row ; 1 H
+    private static int cursor(byte[] output, int length, int row) {
+        output[length++] = 0x1b;
+        output[length++] = '[';
+        var divisor = 1;
+        while (divisor * 10 <= row) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            output[length++] = (byte) ('0' + row / divisor % 10);
+        }
+        output[length++] = ';';
+        output[length++] = '1';
+        output[length++] = 'H';
+        return length;
+    }
+
+    private static byte[] glyphs() {
+        final var glyphs = new byte[1 << 6];
+        for (int flags = 0; flags < glyphs.length; flags++) {
+            if ((flags & GridIndex.SELF) != 0) {
+                glyphs[flags] = 'M';
+            } else if ((flags & GridIndex.OTHER_HUMAN) != 0) {
+                glyphs[flags] = 'P';
+            } else if ((flags & GridIndex.DRAGON) != 0) {
+                glyphs[flags] = 'D';
+            } else if ((flags & GridIndex.HEALTH) != 0) {
+                glyphs[flags] = 'H';
+            } else if ((flags & GridIndex.GOLD) != 0) {
+                glyphs[flags] = 'G';
+            } else if ((flags & GridIndex.ROCK) != 0) {
+                glyphs[flags] = 'X';
+            } else {
+                glyphs[flags] = ' ';
+            }
+        }
+        return glyphs;
+    }
+
+    private static final class Frame {
+        private byte[] glyphs = new byte[0];
+        private int rows;
+        private int columns;
+
+        private void capture(GridIndex index, int target) {
+            rows = index.rows();
+            columns = index.columns();
+            final var cells = rows * columns;
+            if (glyphs.length < cells) {
+                glyphs = new byte[cells];
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                glyphs[cell] = GLYPHS[index.flags(cell)];
+            }
+            if (target >= 0) {
+                glyphs[target] = 'T';
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package example.route;
+
+import example.codec.LocationsBuffer;
+import example.path.DistanceFields;
+import example.state.StateTracker;
+
+import java.util.Arrays;
+
+// Path lengths around rocks between every pair of tracked items, kept up to date from a
+// StateTracker: an item that vanishes frees its slot, one that appears gets a row on the next
+// fill(), which can stop at a deadline and carry on in the next tick. Rows come from the
+// cave's DistanceFields, one field per new item, so the matrix itself holds only ints.
+final class DistanceMatrix implements StateTracker.Listener {
+    private final DistanceFields fields;
+    private final int goldWeight;
+    private final int healthWeight;
+
+    private int capacity = 16;
+    private int[] id = new int[capacity];
+    private int[] cell = new int[capacity];
+    private int[] value = new int[capacity];      // weighted, 0 for a free slot
+    private boolean[] ready = new boolean[capacity];
+    private int[] distance = new int[capacity * capacity];
+    private int slots;                            // highest used slot + 1
+
+    DistanceMatrix(DistanceFields fields, int goldWeight, int healthWeight) {
+        this.fields = fields;
+        this.goldWeight = goldWeight;
+        this.healthWeight = healthWeight;
+    }
+
+    @Override
+    public void reset(int self) {
+        Arrays.fill(value, 0, slots, 0);
+        slots = 0;
+    }
+
+    @Override
+    public void itemSpawned(int type, int id, int value, int cell) {
+        final var weighted = value * (type == LocationsBuffer.GOLD ? goldWeight : healthWeight);
+        if (weighted <= 0) {
+            return;
+        }
+        var slot = 0;
+        while (slot < slots && this.value[slot] > 0) {
+            slot++;
+        }
+        if (slot == capacity) {
+            grow();
+        }
+        this.id[slot] = id;
+        this.cell[slot] = cell;
+        this.value[slot] = weighted;
+        ready[slot] = false;
+        slots = Math.max(slots, slot + 1);
+    }
+
+    @Override
+    public void itemConsumed(int type, int id, int value, int cell) {
+        for (int slot = 0; slot < slots; slot++) {
+            if (this.value[slot] > 0 && this.id[slot] == id && this.cell[slot] == cell) {
+                this.value[slot] = 0;
+                while (slots > 0 && this.value[slots - 1] == 0) {
+                    slots--;
+                }
+                return;
+            }
+        }
+    }
+
+    // Computes the rows of new items until the deadline, false if some are left
+    boolean fill(long deadline) {
+        for (int slot = 0; slot < slots; slot++) {
+            if (value[slot] > 0 && !ready[slot]) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                for (int other = 0; other < slots; other++) {
+                    if (value[other] > 0) {
+                        final var d = other == slot ? 0 : fields.distance(cell[slot], cell[other]);
+                        distance[slot * capacity + other] = d;
+                        distance[other * capacity + slot] = d;
+                    }
+                }
+                ready[slot] = true;
+            }
+        }
+        return true;
+    }
+
+    int slots() {
+        return slots;
+    }
+
+    // A tracked item whose row is known
+    boolean usable(int slot) {
+        return value[slot] > 0 && ready[slot];
+    }
+
+    int cell(int slot) {
+        return cell[slot];
+    }
+
+    int value(int slot) {
+        return value[slot];
+    }
+
+    // Between two usable slots, -1 when rocks separate them
+    int distance(int from, int to) {
+        return distance[from * capacity + to];
+    }
+
+    private void grow() {
+        final var grown = capacity * 2;
+        final var matrix = new int[grown * grown];
+        for (int row = 0; row < capacity; row++) {
+            System.arraycopy(distance, row * capacity, matrix, row * grown, capacity);
+        }
+        distance = matrix;
+        id = Arrays.copyOf(id, grown);
+        cell = Arrays.copyOf(cell, grown);
+        value = Arrays.copyOf(value, grown);
+        ready = Arrays.copyOf(ready, grown);
+        capacity = grown;
+    }
+}
@@ -0,0 +1,293 @@
+package example.route;
+
+import example.path.DistanceFields;
+import example.state.StateTracker;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Picks the item to walk to next by planning a tour instead of taking the nearest item. A
+// route is scored by the value it collects less stepCost per step it takes, the parametric
+// form of value per step: a plain ratio favours a far rich item over several near ones and
+// collects less in practice. The reachable items with the best score on their own are
+// candidates; from each of the best few a route of up to maxStops stops is grown by greedy
+// insertion and shortened with 2-opt. The routes are built in parallel on a ForkJoinPool and
+// the best one's first stop is the target. The previous target always seeds
+// a route and wins ties, so the player does not flip between equally good routes.
+// Everything, new distance matrix rows included, stays within a per-tick budget; rows that do
+// not fit are computed in later ticks and their items wait until then.
+// Gold counts its value; health counts value * healthWeight, so by default it is left to
+// Strategy, which falls back to health when there is no gold.
+public final class RouteOptimizer {
+    private static final int SEEDS = 8;
+    private static final int ME = -1;
+
+    public record Settings(long budgetNanos, int maxStops, int candidates, int stepCost, int healthWeight) {
+        // -Dmazev.route.budgetMicros (2000), -Dmazev.route.maxStops (6), -Dmazev.route.candidates
+        // (24), -Dmazev.route.stepCost (3) and -Dmazev.route.healthWeight (0)
+        public static Settings fromProperties() {
+            return new Settings(
+                    TimeUnit.MICROSECONDS.toNanos(Long.getLong("mazev.route.budgetMicros", 2_000)),
+                    Integer.getInteger("mazev.route.maxStops", 6),
+                    Integer.getInteger("mazev.route.candidates", 24),
+                    Integer.getInteger("mazev.route.stepCost", 3),
+                    Integer.getInteger("mazev.route.healthWeight", 0));
+        }
+    }
+
+    private final Settings settings;
+    private final DistanceFields fields;
+    private final DistanceMatrix matrix;
+    private final ForkJoinPool pool;
+    private final Search search = new Search();
+    private final Route[] routes = new Route[SEEDS + 1];
+
+    // Candidates of the current tick, read by every route
+    private final int[] slot;
+    private final int[] fromMe;
+    private long deadline;
+    private int candidates;
+    private int previous = -1;
+
+    private long deadlineHits;
+
+    public RouteOptimizer(Settings settings, DistanceFields fields, StateTracker tracker, ForkJoinPool pool) {
+        this.settings = settings;
+        this.fields = fields;
+        this.matrix = new DistanceMatrix(fields, 1, settings.healthWeight());
+        this.pool = pool;
+        this.slot = new int[settings.candidates()];
+        this.fromMe = new int[settings.candidates()];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new Route(settings.maxStops(), settings.candidates());
+        }
+        tracker.subscribe(matrix);
+    }
+
+    // Cell of the first stop of the best route from myCell, -1 when no item is reachable or
+    // the budget ran out before any could be picked
+    public int target(int myCell) {
+        deadline = System.nanoTime() + settings.budgetNanos();
+        final var filled = matrix.fill(deadline);
+        if (!selectCandidates(myCell) || !filled) {
+            deadlineHits++;
+        }
+        if (candidates == 0) {
+            previous = -1;
+            return -1;
+        }
+
+        // The best first stops, then the previous target if it is not one
+        var seeds = Math.min(SEEDS, candidates);
+        var previousSeed = -1;
+        for (int i = 0; i < candidates; i++) {
+            if (matrix.cell(slot[i]) == previous) {
+                previousSeed = i;
+            }
+        }
+        for (int i = 0; i < seeds; i++) {
+            routes[i].seed = i;
+        }
+        if (previousSeed >= seeds) {
+            routes[seeds++].seed = previousSeed;
+        }
+        search.seeds = seeds;
+        search.reinitialize();
+        pool.invoke(search);
+
+        var best = routes[0];
+        for (int i = 1; i < seeds; i++) {
+            if (better(routes[i], best, previousSeed)) {
+                best = routes[i];
+            }
+        }
+        if (best.timedOut) {
+            deadlineHits++;
+        }
+        previous = matrix.cell(slot[best.stops[0]]);
+        return previous;
+    }
+
+    // Ticks whose budget ran out before the matrix or the routes were complete
+    public long deadlineHits() {
+        return deadlineHits;
+    }
+
+    private long score(int value, int steps) {
+        return value - (long) settings.stepCost() * steps;
+    }
+
+    // Keeps the candidates that score best as the only stop, best first. Distances come from
+    // the one field of the player's cell: one search per tick, where the items' own fields would
+    // not all stay cached once there are more items than the fields cache holds. When the
+    // deadline passes first none are kept and false is returned, the items looked at by then
+    // are just the first slots and the caller's nearest item is the better target.
+    private boolean selectCandidates(int myCell) {
+        candidates = 0;
+        for (int s = 0; s < matrix.slots(); s++) {
+            if (!matrix.usable(s)) {
+                continue;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                candidates = 0;
+                return false;
+            }
+            final var distance = fields.distance(myCell, matrix.cell(s));
+            if (distance <= 0) {
+                continue;
+            }
+            var at = candidates;
+            final var score = score(matrix.value(s), distance);
+            while (at > 0 && score > score(matrix.value(slot[at - 1]), fromMe[at - 1])) {
+                at--;
+            }
+            if (at == slot.length) {
+                continue;
+            }
+            final var end = Math.min(candidates, slot.length - 1);
+            System.arraycopy(slot, at, slot, at + 1, end - at);
+            System.arraycopy(fromMe, at, fromMe, at + 1, end - at);
+            slot[at] = s;
+            fromMe[at] = distance;
+            candidates = end + 1;
+        }
+        return true;
+    }
+
+    private boolean better(Route a, Route b, int previousSeed) {
+        final var difference = score(a.value, a.steps) - score(b.value, b.steps);
+        if (difference != 0) {
+            return difference > 0;
+        }
+        return a.stops[0] == previousSeed && b.stops[0] != previousSeed;
+    }
+
+    // Steps between two candidates, ME for the player's cell
+    private int leg(int from, int to) {
+        return from == ME ? fromMe[to] : matrix.distance(slot[from], slot[to]);
+    }
+
+    // Grows one route per seed, all but the first forked to the pool
+    private final class Search extends RecursiveAction {
+        private int seeds;
+
+        @Override
+        protected void compute() {
+            for (int i = 1; i < seeds; i++) {
+                routes[i].reinitialize();
+                routes[i].fork();
+            }
+            routes[0].reinitialize();
+            routes[0].invoke();
+            for (int i = 1; i < seeds; i++) {
+                routes[i].join();
+            }
+        }
+    }
+
+    private final class Route extends RecursiveAction {
+        private final int[] stops;
+        private final boolean[] taken;
+        private int seed;
+        private int size;
+        private int value;
+        private int steps;
+        private boolean timedOut;
+
+        private Route(int maxStops, int candidates) {
+            this.stops = new int[maxStops];
+            this.taken = new boolean[candidates];
+        }
+
+        @Override
+        protected void compute() {
+            Arrays.fill(taken, 0, candidates, false);
+            stops[0] = seed;
+            taken[seed] = true;
+            size = 1;
+            value = matrix.value(slot[seed]);
+            steps = fromMe[seed];
+            timedOut = false;
+            insert();
+            improve();
+        }
+
+        // Adds the stop and position that raise the score the most, while any does
+        private void insert() {
+            while (size < stops.length) {
+                if (System.nanoTime() - deadline >= 0) {
+                    timedOut = true;
+                    return;
+                }
+                var bestCandidate = -1;
+                var bestPosition = 0;
+                var bestValue = value;
+                var bestSteps = steps;
+                for (int c = 0; c < candidates; c++) {
+                    if (taken[c]) {
+                        continue;
+                    }
+                    final var candidateValue = value + matrix.value(slot[c]);
+                    for (int position = 0; position <= size; position++) {
+                        final var before = position == 0 ? ME : stops[position - 1];
+                        var added = leg(before, c);
+                        if (position < size) {
+                            added += leg(c, stops[position]) - leg(before, stops[position]);
+                        }
+                        if (score(candidateValue, steps + added) > score(bestValue, bestSteps)) {
+                            bestCandidate = c;
+                            bestPosition = position;
+                            bestValue = candidateValue;
+                            bestSteps = steps + added;
+                        }
+                    }
+                }
+                if (bestCandidate < 0) {
+                    return;
+                }
+                System.arraycopy(stops, bestPosition, stops, bestPosition + 1, size - bestPosition);
+                stops[bestPosition] = bestCandidate;
+                taken[bestCandidate] = true;
+                size++;
+                value = bestValue;
+                steps = bestSteps;
+            }
+        }
+
+        // 2-opt on the open route from the player: reverse any stretch that shortens it
+        private void improve() {
+            var improved = true;
+            while (improved) {
+                improved = false;
+                for (int i = 0; i < size - 1; i++) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        timedOut = true;
+                        return;
+                    }
+                    final var before = i == 0 ? ME : stops[i - 1];
+                    for (int j = i + 1; j < size; j++) {
+                        var delta = leg(before, stops[j]) - leg(before, stops[i]);
+                        if (j + 1 < size) {
+                            delta += leg(stops[i], stops[j + 1]) - leg(stops[j], stops[j + 1]);
+                        }
+                        if (delta < 0) {
+                            reverse(i, j);
+                            steps += delta;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void reverse(int from, int to) {
+            while (from < to) {
+                final var stop = stops[from];
+                stops[from++] = stops[to];
+                stops[to--] = stop;
+            }
+        }
+    }
+}
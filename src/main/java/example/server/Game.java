@@ -0,0 +1,211 @@
+package example.server;
+
+import example.domain.Response;
+import example.domain.game.*;
+
+import java.util.*;
+
+// Rules of the local stand-in server, without any networking so a simulation can drive it
+// tick by tick. Everything random comes from one generator seeded in the settings, so the
+// same seed and the same commands in the same ticks always play out the same game.
+//
+// Each tick: every human takes its latest command (one step, not into rock, a human or a
+// dragon), picks up the item it lands on, dragons wander, and a human next to a dragon
+// loses health by the dragon's size. A human out of health respawns with half its gold.
+// Picked up items reappear on a random free cell so the map never runs dry.
+public final class Game {
+    public static final int INITIAL_HEALTH = 100;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Settings settings;
+    private final Random random;
+    private final SimpleCave cave;
+    private final Locations locations;
+    private final Map<Location, Item> items = new LinkedHashMap<>();
+    private final Map<String, Human> humans = new LinkedHashMap<>();
+    private final List<Dragon> dragons = new ArrayList<>();
+    private int nextItemId;
+    private long tick;
+
+    public record Settings(long seed, int rows, int columns, int gold, int health, int dragons) {
+        public static Settings fromProperties() {
+            return new Settings(
+                    Long.getLong("mazev.server.seed", 1),
+                    Integer.getInteger("mazev.server.rows", 40),
+                    Integer.getInteger("mazev.server.columns", 80),
+                    Integer.getInteger("mazev.server.gold", 20),
+                    Integer.getInteger("mazev.server.health", 5),
+                    Integer.getInteger("mazev.server.dragons", 3));
+        }
+    }
+
+    private static final class Human {
+        private final Player.HumanPlayer player;
+        private Location location;
+        private int health = INITIAL_HEALTH;
+        private int gold;
+        private Direction command;
+
+        private Human(Player.HumanPlayer player, Location location) {
+            this.player = player;
+            this.location = location;
+        }
+    }
+
+    private static final class Dragon {
+        private final Player.Dragon player;
+        private Location location;
+
+        private Dragon(Player.Dragon player, Location location) {
+            this.player = player;
+            this.location = location;
+        }
+    }
+
+    public Game(Settings settings) {
+        this.settings = settings;
+        this.random = new Random(settings.seed());
+        this.cave = new SimpleCave(settings.rows(), settings.columns(), random);
+        this.locations = Locations.of(cave);
+        for (int i = 0; i < settings.gold(); i++) {
+            spawnGold();
+        }
+        for (int i = 0; i < settings.health(); i++) {
+            spawnHealth();
+        }
+        final var sizes = Player.Dragon.Size.values();
+        for (int i = 0; i < settings.dragons(); i++) {
+            dragons.add(new Dragon(new Player.Dragon(sizes[random.nextInt(sizes.length)]), freeLocation()));
+        }
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public Cave cave() {
+        return cave;
+    }
+
+    public long tick() {
+        return tick;
+    }
+
+    // Adds the player or returns the one already playing under that name, e.g. after a reconnect
+    public Player.HumanPlayer join(String name) {
+        return humans.computeIfAbsent(name, ignored -> new Human(new Player.HumanPlayer(name), freeLocation())).player;
+    }
+
+    // Replaces any earlier command of the player in this tick
+    public void command(Action action) {
+        if (action.player() instanceof Player.HumanPlayer humanPlayer) {
+            final var human = humans.get(humanPlayer.name());
+            if (human != null) {
+                human.command = action.direction();
+            }
+        }
+    }
+
+    public void step() {
+        tick++;
+        for (final var human : humans.values()) {
+            if (human.command != null) {
+                final var target = locations.neighbour(human.location, human.command);
+                if (free(target)) {
+                    human.location = target;
+                }
+                human.command = null;
+            }
+            switch (items.get(human.location)) {
+                case Item.Gold gold -> {
+                    human.gold += gold.value();
+                    items.remove(human.location);
+                    spawnGold();
+                }
+                case Item.Health health -> {
+                    human.health += health.value();
+                    items.remove(human.location);
+                    spawnHealth();
+                }
+                case null -> {
+                }
+            }
+        }
+        for (final var dragon : dragons) {
+            if (random.nextBoolean()) {
+                final var target = locations.neighbour(dragon.location, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                if (free(target)) {
+                    dragon.location = target;
+                }
+            }
+        }
+        for (final var human : humans.values()) {
+            for (final var dragon : dragons) {
+                if (Math.abs(human.location.row() - dragon.location.row()) + Math.abs(human.location.column() - dragon.location.column()) <= 1) {
+                    human.health -= 5 * (dragon.player.size().ordinal() + 1);
+                }
+            }
+            if (human.health <= 0) {
+                human.health = INITIAL_HEALTH;
+                human.gold /= 2;
+                human.location = freeLocation();
+            }
+        }
+    }
+
+    // What the named player is sent after each tick
+    public Response.StateLocations locations(String name) {
+        final var itemLocations = new ArrayList<Response.StateLocations.ItemLocation>(items.size());
+        for (final var entry : items.entrySet()) {
+            itemLocations.add(new Response.StateLocations.ItemLocation(entry.getValue(), entry.getKey()));
+        }
+        final var playerLocations = new ArrayList<Response.StateLocations.PlayerLocation>(humans.size() + dragons.size());
+        for (final var human : humans.values()) {
+            playerLocations.add(new Response.StateLocations.PlayerLocation(human.player, human.location));
+        }
+        for (final var dragon : dragons) {
+            playerLocations.add(new Response.StateLocations.PlayerLocation(dragon.player, dragon.location));
+        }
+        final var human = humans.get(name);
+        return new Response.StateLocations(itemLocations, playerLocations, human != null ? human.health : null, human != null ? human.gold : null);
+    }
+
+    private void spawnGold() {
+        items.put(freeLocation(), new Item.Gold(nextItemId++, 1 + random.nextInt(10)));
+    }
+
+    private void spawnHealth() {
+        items.put(freeLocation(), new Item.Health(nextItemId++, 10 + random.nextInt(21)));
+    }
+
+    // Inside the cave (null is outside), not rock and not taken by a human or a dragon
+    private boolean free(Location location) {
+        if (location == null) {
+            return false;
+        }
+        if (cave.rock(location.row(), location.column())) {
+            return false;
+        }
+        for (final var human : humans.values()) {
+            if (human.location.equals(location)) {
+                return false;
+            }
+        }
+        for (final var dragon : dragons) {
+            if (dragon.location.equals(location)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Random free cell without an item
+    private Location freeLocation() {
+        while (true) {
+            final var location = locations.at(random.nextInt(cave.rows()), random.nextInt(cave.columns()));
+            if (free(location) && !items.containsKey(location)) {
+                return location;
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package example.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.domain.Request;
+import example.domain.Response;
+import example.domain.game.Action;
+import example.domain.game.Player;
+import example.pipeline.Handoff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Loopback stand-in for the game server, speaking the same newline-delimited JSON. Any
+// non-blank key is accepted and becomes the player's name; a key already connected is
+// refused with Unauthorized. After Authorized and StateCave every connection gets its
+// StateLocations each tick, and Commands received in between are applied on the next one.
+// Each connection is written by a virtual thread of its own that sends the newest
+// StateLocations, so a client too slow to read skips ticks instead of holding up the game.
+//
+//   java -cp ... example.server.LocalServer
+//   -Dmazev.server.port=8080 -Dmazev.server.tickMillis=100 plus the Game.Settings properties
+public final class LocalServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalServer.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Game game;
+    private final long tickMillis;
+    private final ServerSocket serverSocket;
+    private final ScheduledExecutorService ticker;
+    private final CopyOnWriteArrayList<Session> sessions = new CopyOnWriteArrayList<>();
+    // Keys of the players connected, claimed before the game is joined so two connections
+    // with the same key cannot both get in
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+    // Port 0 picks a free one, see port()
+    public LocalServer(Game game, int port, long tickMillis) throws IOException {
+        this.game = game;
+        this.tickMillis = tickMillis;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("server-tick").daemon().factory());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final var port = Integer.getInteger("mazev.server.port", 8080);
+        final var tickMillis = Long.getLong("mazev.server.tickMillis", 100);
+        try (final var server = new LocalServer(new Game(Game.Settings.fromProperties()), port, tickMillis)) {
+            server.start();
+            logger.info("Local server on port {}, tick {} ms, {}", server.port(), tickMillis, server.game.settings());
+            Thread.currentThread().join();
+        }
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        Thread.ofVirtual().name("server-accept").start(this::accept);
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        ticker.shutdownNow();
+        serverSocket.close();
+        for (final var session : sessions) {
+            session.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().name("server-session").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Session session = null;
+        try (socket; final var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            final var writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            final var first = reader.readLine();
+            if (first == null) {
+                return;
+            }
+            final var player = authorize(objectMapper.readValue(first, Request.class));
+            if (player == null) {
+                send(writer, new Response.Unauthorized());
+                return;
+            }
+            session = new Session(socket, writer, player);
+            send(writer, new Response.Authorized(player));
+            synchronized (game) {
+                send(writer, new Response.StateCave(game.cave()));
+            }
+            // Ticks reach the writer thread only once the session is listed
+            Thread.ofVirtual().name("server-write").start(session::write);
+            sessions.add(session);
+            logger.info("{} joined", player.name());
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (objectMapper.readValue(line, Request.class) instanceof Request.Command command && command.direction() != null) {
+                    synchronized (game) {
+                        game.command(new Action(player, command.direction()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Session ended", e);
+        } finally {
+            if (session != null) {
+                session.close();
+                keys.remove(session.player.name());
+                logger.info("{} left", session.player.name());
+            }
+        }
+    }
+
+    private Player.HumanPlayer authorize(Request request) {
+        if (!(request instanceof Request.Authorize authorize) || authorize.key() == null || authorize.key().isBlank()) {
+            return null;
+        }
+        if (!keys.add(authorize.key())) {
+            return null;
+        }
+        try {
+            synchronized (game) {
+                return game.join(authorize.key());
+            }
+        } catch (RuntimeException e) {
+            keys.remove(authorize.key());
+            throw e;
+        }
+    }
+
+    private void tick() {
+        try {
+            synchronized (game) {
+                game.step();
+                for (final var session : sessions) {
+                    session.lines.publish(objectMapper.writeValueAsString(game.locations(session.player.name())));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Never let an exception cancel the schedule
+            logger.error("Tick failed", e);
+        }
+    }
+
+    private void send(BufferedWriter writer, Response response) throws IOException {
+        writer.write(objectMapper.writeValueAsString(response));
+        writer.newLine();
+        writer.flush();
+    }
+
+    private final class Session {
+        private final Socket socket;
+        private final BufferedWriter writer;
+        private final Player.HumanPlayer player;
+        // StateLocations lines, published by the tick thread and taken by the writer thread
+        private final Handoff<String> lines = new Handoff<>();
+
+        private Session(Socket socket, BufferedWriter writer, Player.HumanPlayer player) {
+            this.socket = socket;
+            this.writer = writer;
+            this.player = player;
+        }
+
+        private void write() {
+            String line;
+            while ((line = lines.take()) != null) {
+                try {
+                    writer.write(line);
+                    writer.newLine();
+                    writer.flush();
+                } catch (IOException e) {
+                    logger.debug("Dropping {}", player.name(), e);
+                    close();
+                    return;
+                }
+            }
+        }
+
+        private void close() {
+            sessions.remove(this);
+            lines.close();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Close failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package example.state;
+
+import example.domain.game.Direction;
+
+import java.util.Arrays;
+
+// Moves already decided for a state, keyed by its ZobristHash, so a state that comes back
+// (a player waiting, or two of them stepping back and forth) is answered without a search.
+// A bounded open-addressing table: a hash is looked for in PROBES slots from its home slot,
+// and when they are all taken the home slot is overwritten. A hash alone is not trusted.
+// Every entry keeps the state it was decided on, this player's cell and the gold, health,
+// player and dragon lists of the GridIndex in order. A hit must match all of it, so a
+// cached move is the one a fresh decision would make. States with more than maxState
+// entries are not cached. clear() drops everything in O(1) when a new cave arrives.
+public final class DecisionCache {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int PROBES = 8;
+
+    private final int mask;
+    private final int stride;
+    private final long[] hashes;
+    private final int[] stamps;            // generation the entry was put in, 0 for never
+    private final byte[] directions;
+    private final int[] targets;
+    private final int[] costs;
+    private final int[] lengths;
+    private final int[] states;            // slot * stride, the state the entry was decided on
+    private final int[] scratch;
+    private int generation = 1;
+
+    private long lookups;
+    private long hits;
+    private long collisions;
+
+    public record Settings(int entries, int maxState) {
+        // -Dmazev.cache.entries (1024, rounded up to a power of two) and -Dmazev.cache.maxState (48)
+        public static Settings fromProperties() {
+            return new Settings(Integer.getInteger("mazev.cache.entries", 1024), Integer.getInteger("mazev.cache.maxState", 48));
+        }
+    }
+
+    public DecisionCache(Settings settings) {
+        final var entries = Integer.highestOneBit(Math.max(PROBES, settings.entries() - 1) << 1);
+        this.mask = entries - 1;
+        this.stride = settings.maxState();
+        this.hashes = new long[entries];
+        this.stamps = new int[entries];
+        this.directions = new byte[entries];
+        this.targets = new int[entries];
+        this.costs = new int[entries];
+        this.lengths = new int[entries];
+        this.states = new int[entries * stride];
+        this.scratch = new int[stride];
+    }
+
+    // Slot holding the decision for this state, -1 when there is none
+    public int find(long hash, GridIndex index) {
+        lookups++;
+        final var length = describe(index);
+        if (length < 0) {
+            return -1;
+        }
+        for (int probe = 0, slot = home(hash); probe < PROBES; probe++, slot = (slot + 1) & mask) {
+            if (stamps[slot] == generation && hashes[slot] == hash) {
+                if (matches(slot, length)) {
+                    hits++;
+                    return slot;
+                }
+                collisions++;
+            }
+        }
+        return -1;
+    }
+
+    // Remembers the decision for the state the index holds now
+    public void put(long hash, GridIndex index, Direction direction, int target, int cost) {
+        final var length = describe(index);
+        if (length < 0) {
+            return;
+        }
+        final var home = home(hash);
+        var free = -1;
+        for (int probe = 0, slot = home; probe < PROBES; probe++, slot = (slot + 1) & mask) {
+            if (stamps[slot] != generation) {
+                if (free < 0) {
+                    free = slot;
+                }
+            } else if (hashes[slot] == hash && matches(slot, length)) {
+                free = slot;
+                break;
+            }
+        }
+        final var slot = free >= 0 ? free : home;
+        hashes[slot] = hash;
+        stamps[slot] = generation;
+        directions[slot] = (byte) direction.ordinal();
+        targets[slot] = target;
+        costs[slot] = cost;
+        lengths[slot] = length;
+        System.arraycopy(scratch, 0, states, slot * stride, length);
+    }
+
+    public Direction direction(int slot) {
+        return DIRECTIONS[directions[slot]];
+    }
+
+    // Cell the decision headed for, -1 for none
+    public int target(int slot) {
+        return targets[slot];
+    }
+
+    // Steps of the path the decision started on, 0 when it did not follow one
+    public int cost(int slot) {
+        return costs[slot];
+    }
+
+    public void clear() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    public long lookups() {
+        return lookups;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    // Lookups that found the hash of another state
+    public long collisions() {
+        return collisions;
+    }
+
+    public double hitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private int home(long hash) {
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    private boolean matches(int slot, int length) {
+        if (lengths[slot] != length) {
+            return false;
+        }
+        final var offset = slot * stride;
+        for (int i = 0; i < length; i++) {
+            if (states[offset + i] != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes the state into scratch and returns its length, -1 when it does not fit
+    private int describe(GridIndex index) {
+        final var length = 5 + index.goldCount() + index.healthCount() + index.humanCount() + index.dragonCount();
+        if (length > stride) {
+            return -1;
+        }
+        var at = 0;
+        scratch[at++] = index.myCell();
+        scratch[at++] = index.goldCount();
+        for (int i = 0; i < index.goldCount(); i++) {
+            scratch[at++] = index.goldCell(i);
+        }
+        scratch[at++] = index.healthCount();
+        for (int i = 0; i < index.healthCount(); i++) {
+            scratch[at++] = index.healthCell(i);
+        }
+        scratch[at++] = index.humanCount();
+        for (int i = 0; i < index.humanCount(); i++) {
+            scratch[at++] = index.humanCell(i);
+        }
+        scratch[at++] = index.dragonCount();
+        for (int i = 0; i < index.dragonCount(); i++) {
+            scratch[at++] = index.dragonCell(i) << 2 | index.dragonSize(i);
+        }
+        return at;
+    }
+}
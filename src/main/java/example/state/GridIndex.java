@@ -0,0 +1,475 @@
+package example.state;
+
+import example.codec.LocationsBuffer;
+import example.domain.Response;
+import example.domain.game.Cave;
+import example.domain.game.Item;
+import example.domain.game.Player;
+import example.path.Cells;
+import example.path.Terrain;
+
+import java.util.Arrays;
+
+// Occupancy of every cell for a single StateLocations tick, cell = row * columns + column.
+// Rocks are laid out once per cave; items and players are refreshed by update() which
+// only clears the cells it set on the previous tick, or follow a StateTracker's changes.
+public final class GridIndex implements Terrain, StateTracker.Listener {
+    public static final byte ROCK = 1;
+    public static final byte GOLD = 1 << 1;
+    public static final byte HEALTH = 1 << 2;
+    public static final byte OTHER_HUMAN = 1 << 3;
+    public static final byte DRAGON = 1 << 4;
+    public static final byte SELF = 1 << 5;
+
+    private static final byte BLOCKED = ROCK | OTHER_HUMAN;
+
+    private final Cave cave;
+    private final int rows;
+    private final int columns;
+    private final int cells;
+
+    private final byte[] flags;
+    private final int[] itemValue;
+    private final int[] itemId;
+
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    private int[] goldCells = new int[16];
+    private int goldCount;
+    private int[] healthCells = new int[16];
+    private int healthCount;
+    private int[] humanCells = new int[16];
+    private int humanCount;
+    private int[] dragonCells = new int[16];
+    private int[] dragonSizes = new int[16];     // Player.Dragon.Size ordinal
+    private int dragonCount;
+
+    private int self = -1;
+    private int selfName = -1;
+    private int health;
+    private int gold;
+
+    public GridIndex(Cave cave) {
+        this.cave = cave;
+        this.rows = cave.rows();
+        this.columns = cave.columns();
+        this.cells = rows * columns;
+        this.flags = new byte[cells];
+        this.itemValue = new int[cells];
+        this.itemId = new int[cells];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (cave.rock(row, column)) {
+                    flags[row * columns + column] = ROCK;
+                }
+            }
+        }
+    }
+
+    // Replace items and players with the ones of a new tick
+    public void update(Response.StateLocations stateLocations, Player player) {
+        clear(stateLocations.health() == null ? 0 : stateLocations.health(), stateLocations.gold() == null ? 0 : stateLocations.gold());
+
+        for (final var entry : stateLocations.itemLocations()) {
+            final var cell = cell(entry.location().row(), entry.location().column());
+            switch (entry.entity()) {
+                case Item.Gold item -> addGold(cell, item.id(), item.value());
+                case Item.Health item -> addHealth(cell, item.id(), item.value());
+            }
+        }
+
+        for (final var entry : stateLocations.playerLocations()) {
+            final var cell = cell(entry.location().row(), entry.location().column());
+            switch (entry.entity()) {
+                case Player.Dragon dragon -> addDragon(cell, dragon.size().ordinal());
+                case Player.HumanPlayer humanPlayer -> addHuman(cell, humanPlayer.equals(player));
+            }
+        }
+    }
+
+    // Same as above, straight from the decoder's primitive buffers
+    public void update(LocationsBuffer locations, Player player) {
+        update(locations, player instanceof Player.HumanPlayer humanPlayer ? locations.names().find(humanPlayer.name()) : -1);
+    }
+
+    // With this player already looked up in locations.names(), for a thread that must not touch the names
+    public void update(LocationsBuffer locations, int self) {
+        clear(locations.health(), locations.gold());
+
+        for (int i = 0; i < locations.itemCount(); i++) {
+            final var cell = cell(locations.itemRow(i), locations.itemColumn(i));
+            if (locations.itemType(i) == LocationsBuffer.GOLD) {
+                addGold(cell, locations.itemId(i), locations.itemValue(i));
+            } else {
+                addHealth(cell, locations.itemId(i), locations.itemValue(i));
+            }
+        }
+
+        for (int i = 0; i < locations.playerCount(); i++) {
+            final var cell = cell(locations.playerRow(i), locations.playerColumn(i));
+            if (locations.playerType(i) == LocationsBuffer.DRAGON) {
+                addDragon(cell, locations.playerName(i));
+            } else {
+                addHuman(cell, locations.playerName(i) == self);
+            }
+        }
+    }
+
+    // The listener methods keep the same state update() builds up to date from a
+    // StateTracker's changes, though not always in the same order. A player that moves keeps
+    // its place in its list, and whatever is reported as new is appended: entities that
+    // arrive, and dragons or items the tracker reports as gone and new again (a dragon that
+    // jumped, an item whose value changed). So the lists follow the order things arrived in,
+    // not the order the server sent them this tick. Strategy breaks ties between items on
+    // the cell rather than the list order, and DecisionCache only misses on a reordered state.
+    @Override
+    public void reset(int self) {
+        clear(0, 0);
+        selfName = self;
+    }
+
+    @Override
+    public void itemSpawned(int type, int id, int value, int cell) {
+        if (type == LocationsBuffer.GOLD) {
+            addGold(cell, id, value);
+        } else {
+            addHealth(cell, id, value);
+        }
+    }
+
+    @Override
+    public void itemConsumed(int type, int id, int value, int cell) {
+        if (type == LocationsBuffer.GOLD) {
+            goldCount = remove(goldCells, goldCount, cell);
+            if (!contains(goldCells, goldCount, cell)) {
+                unmark(cell, GOLD);
+            }
+        } else {
+            healthCount = remove(healthCells, healthCount, cell);
+            if (!contains(healthCells, healthCount, cell)) {
+                unmark(cell, HEALTH);
+            }
+        }
+        if ((flags[cell] & (GOLD | HEALTH)) == 0) {
+            itemValue[cell] = 0;
+            itemId[cell] = 0;
+        }
+    }
+
+    @Override
+    public void playerAppeared(int type, int value, int cell) {
+        if (type == LocationsBuffer.DRAGON) {
+            addDragon(cell, value);
+        } else {
+            addHuman(cell, value == selfName);
+        }
+    }
+
+    @Override
+    public void playerMoved(int type, int value, int from, int to) {
+        if (type == LocationsBuffer.DRAGON) {
+            final var dragon = dragonIndex(from, value);
+            if (dragon >= 0) {
+                dragonCells[dragon] = to;
+            }
+            mark(to, DRAGON);
+            if (!contains(dragonCells, dragonCount, from)) {
+                unmark(from, DRAGON);
+            }
+        } else if (value == selfName) {
+            mark(to, SELF);
+            unmark(from, SELF);
+            self = to;
+        } else {
+            replace(humanCells, humanCount, from, to);
+            mark(to, OTHER_HUMAN);
+            if (!contains(humanCells, humanCount, from)) {
+                unmark(from, OTHER_HUMAN);
+            }
+        }
+    }
+
+    @Override
+    public void playerLeft(int type, int value, int cell) {
+        if (type == LocationsBuffer.DRAGON) {
+            final var dragon = dragonIndex(cell, value);
+            if (dragon >= 0) {
+                System.arraycopy(dragonCells, dragon + 1, dragonCells, dragon, dragonCount - dragon - 1);
+                System.arraycopy(dragonSizes, dragon + 1, dragonSizes, dragon, dragonCount - dragon - 1);
+                dragonCount--;
+            }
+            if (!contains(dragonCells, dragonCount, cell)) {
+                unmark(cell, DRAGON);
+            }
+        } else if (value == selfName) {
+            unmark(cell, SELF);
+            self = -1;
+        } else {
+            humanCount = remove(humanCells, humanCount, cell);
+            if (!contains(humanCells, humanCount, cell)) {
+                unmark(cell, OTHER_HUMAN);
+            }
+        }
+    }
+
+    @Override
+    public void ownChanged(int health, int gold, int healthDelta, int goldDelta) {
+        this.health = health;
+        this.gold = gold;
+    }
+
+    private void clear(int health, int gold) {
+        for (int i = 0; i < touchedCount; i++) {
+            final var cell = touched[i];
+            flags[cell] &= ROCK;
+            itemValue[cell] = 0;
+            itemId[cell] = 0;
+        }
+        touchedCount = 0;
+        goldCount = 0;
+        healthCount = 0;
+        humanCount = 0;
+        dragonCount = 0;
+        self = -1;
+        this.health = health;
+        this.gold = gold;
+    }
+
+    private void addGold(int cell, int id, int value) {
+        mark(cell, GOLD);
+        itemValue[cell] = value;
+        itemId[cell] = id;
+        goldCells = append(goldCells, goldCount++, cell);
+    }
+
+    private void addHealth(int cell, int id, int value) {
+        mark(cell, HEALTH);
+        itemValue[cell] = value;
+        itemId[cell] = id;
+        healthCells = append(healthCells, healthCount++, cell);
+    }
+
+    private void addDragon(int cell, int size) {
+        mark(cell, DRAGON);
+        dragonSizes = append(dragonSizes, dragonCount, size);
+        dragonCells = append(dragonCells, dragonCount++, cell);
+    }
+
+    private int dragonIndex(int cell, int size) {
+        for (int i = 0; i < dragonCount; i++) {
+            if (dragonCells[i] == cell && dragonSizes[i] == size) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addHuman(int cell, boolean me) {
+        if (me) {
+            mark(cell, SELF);
+            if (self < 0) {
+                self = cell;
+            }
+        } else {
+            mark(cell, OTHER_HUMAN);
+            humanCells = append(humanCells, humanCount++, cell);
+        }
+    }
+
+    private void mark(int cell, byte flag) {
+        if ((flags[cell] & ~ROCK) == 0) {
+            touched = append(touched, touchedCount++, cell);
+        }
+        flags[cell] |= flag;
+    }
+
+    private void unmark(int cell, byte flag) {
+        flags[cell] &= (byte) ~flag;
+        if ((flags[cell] & ~ROCK) == 0) {
+            touchedCount = remove(touched, touchedCount, cell);
+        }
+    }
+
+    // Drops the first entry equal to value, keeping the order of the rest; returns the new count
+    private static int remove(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                System.arraycopy(array, i + 1, array, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    private static void replace(int[] array, int count, int value, int replacement) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                array[i] = replacement;
+                return;
+            }
+        }
+    }
+
+    private static boolean contains(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    public Cave cave() {
+        return cave;
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int columns() {
+        return columns;
+    }
+
+    public int cells() {
+        return cells;
+    }
+
+    public int cell(int row, int column) {
+        return row * columns + column;
+    }
+
+    public byte flags(int cell) {
+        return flags[cell];
+    }
+
+    @Override
+    public boolean rock(int cell) {
+        return (flags[cell] & ROCK) != 0;
+    }
+
+    public boolean gold(int cell) {
+        return (flags[cell] & GOLD) != 0;
+    }
+
+    public boolean health(int cell) {
+        return (flags[cell] & HEALTH) != 0;
+    }
+
+    public boolean otherHuman(int cell) {
+        return (flags[cell] & OTHER_HUMAN) != 0;
+    }
+
+    public boolean dragon(int cell) {
+        return (flags[cell] & DRAGON) != 0;
+    }
+
+    public boolean self(int cell) {
+        return (flags[cell] & SELF) != 0;
+    }
+
+    // Value of the item lying at the cell, 0 if there is none
+    public int itemValue(int cell) {
+        return itemValue[cell];
+    }
+
+    // Id of the item lying at the cell, 0 if there is none
+    public int itemId(int cell) {
+        return itemId[cell];
+    }
+
+    @Override
+    public boolean blocked(int cell) {
+        return (flags[cell] & BLOCKED) != 0;
+    }
+
+    @Override
+    public int stepCost(int cell) {
+        // Prioritize neighbour (reduce the cost) if there is health at that location
+        return (flags[cell] & HEALTH) != 0 ? 0 : 1;
+    }
+
+    @Override
+    public int occupiedCount() {
+        return touchedCount;
+    }
+
+    @Override
+    public int occupiedCell(int index) {
+        return touched[index];
+    }
+
+    // Check if the cell is surrounded by other players or rocks from every side
+    public boolean surrounded(int cell) {
+        for (int direction = 0; direction < 4; direction++) {
+            final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+            if (neighbour >= 0 && !blocked(neighbour)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cell of my player, -1 if it is not on the map
+    public int myCell() {
+        return self;
+    }
+
+    public int myHealth() {
+        return health;
+    }
+
+    public int myGold() {
+        return gold;
+    }
+
+    // Cells holding gold, health, other players and dragons. update() lists them in the order
+    // the server sent them, an index kept up by a StateTracker in the order they arrived.
+    public int goldCount() {
+        return goldCount;
+    }
+
+    public int goldCell(int index) {
+        return goldCells[index];
+    }
+
+    public int healthCount() {
+        return healthCount;
+    }
+
+    public int healthCell(int index) {
+        return healthCells[index];
+    }
+
+    public int humanCount() {
+        return humanCount;
+    }
+
+    public int humanCell(int index) {
+        return humanCells[index];
+    }
+
+    public int dragonCount() {
+        return dragonCount;
+    }
+
+    public int dragonCell(int index) {
+        return dragonCells[index];
+    }
+
+    // Player.Dragon.Size ordinal of the dragon
+    public int dragonSize(int index) {
+        return dragonSizes[index];
+    }
+}
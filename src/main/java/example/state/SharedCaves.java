@@ -0,0 +1,85 @@
+package example.state;
+
+import example.domain.game.BitCave;
+import example.domain.game.Cave;
+import example.path.ClusterGraph;
+import example.path.DistanceFields;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The read-only side of a cave, shared by every session playing it: the BitCave, its
+// distance fields and, for the hierarchical planner, its cluster graph. A cave is looked up
+// by content, so sessions that were each sent the same StateCave end up with the same
+// instance. It is dropped once the last session releases it.
+public final class SharedCaves {
+    private static final Logger logger = LoggerFactory.getLogger(SharedCaves.class);
+    private final ConcurrentHashMap<BitCave, Shared> caves = new ConcurrentHashMap<>();
+    private final long fieldsMaxBytes;
+
+    public SharedCaves(long fieldsMaxBytes) {
+        this.fieldsMaxBytes = fieldsMaxBytes;
+    }
+
+    public static final class Shared {
+        private final BitCave cave;
+        private final DistanceFields fields;
+        private final ReentrantLock clustersLock = new ReentrantLock();
+        private volatile ClusterGraph clusters;
+        private int users;    // guarded by the map entry
+
+        private Shared(BitCave cave, DistanceFields fields) {
+            this.cave = cave;
+            this.fields = fields;
+        }
+
+        public BitCave cave() {
+            return cave;
+        }
+
+        public DistanceFields fields() {
+            return fields;
+        }
+
+        // Built on first use, in parallel on the common ForkJoinPool, then shared
+        public ClusterGraph clusters() {
+            var clusters = this.clusters;
+            if (clusters == null) {
+                clustersLock.lock();
+                try {
+                    clusters = this.clusters;
+                    if (clusters == null) {
+                        clusters = ClusterGraph.build(cave.rows(), cave.columns(), cave::rock, ClusterGraph.DEFAULT_CLUSTER_SIZE, ForkJoinPool.commonPool());
+                        this.clusters = clusters;
+                        logger.info("Built {}", clusters);
+                    }
+                } finally {
+                    clustersLock.unlock();
+                }
+            }
+            return clusters;
+        }
+    }
+
+    // Pair every acquire with a release once the session leaves the cave
+    public Shared acquire(Cave cave) {
+        return caves.compute(BitCave.of(cave), (key, shared) -> {
+            if (shared == null) {
+                shared = new Shared(key, new DistanceFields(key, fieldsMaxBytes));
+            }
+            shared.users++;
+            return shared;
+        });
+    }
+
+    public void release(Shared shared) {
+        caves.computeIfPresent(shared.cave, (key, current) -> current == shared && --current.users == 0 ? null : current);
+    }
+
+    public int size() {
+        return caves.size();
+    }
+}
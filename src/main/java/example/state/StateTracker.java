@@ -0,0 +1,356 @@
+package example.state;
+
+import example.codec.LocationsBuffer;
+
+import java.util.Arrays;
+
+// Compares each StateLocations with the previous one and reports only what changed, so an
+// index can follow the game instead of being rebuilt from every snapshot. Items are matched
+// by id and humans by name; dragons have neither, so they are matched by size and cell, and
+// a dragon missing from its cell has moved if one of its size turned up next to it.
+// Listeners get primitive callbacks in the decoder's terms: item types LocationsBuffer.GOLD
+// and HEALTH, player types HUMAN and DRAGON with the name id or size ordinal as the value,
+// cell = row * columns + column. Nothing is allocated per change.
+// Within a tick everything that went away is reported before anything new. Moves are mixed
+// in before the new ones in no particular order, so two players may swap cells one event at
+// a time and a listener has to allow for a cell briefly holding both.
+public final class StateTracker {
+    public interface Listener {
+        // Forget all state, the events that follow describe the whole tick. self is the
+        // name id of this player.
+        default void reset(int self) {
+        }
+
+        default void itemSpawned(int type, int id, int value, int cell) {
+        }
+
+        default void itemConsumed(int type, int id, int value, int cell) {
+        }
+
+        default void playerAppeared(int type, int value, int cell) {
+        }
+
+        default void playerMoved(int type, int value, int from, int to) {
+        }
+
+        default void playerLeft(int type, int value, int cell) {
+        }
+
+        default void ownChanged(int health, int gold, int healthDelta, int goldDelta) {
+        }
+    }
+
+    private final int columns;
+    private Listener[] listeners = new Listener[0];
+    private Snapshot previous = new Snapshot();
+    private Snapshot current = new Snapshot();
+    private boolean tracking;
+    private int self;
+
+    // Dragons that are not where they were, and ones found where none was
+    private int[] gone = new int[16];
+    private int[] arrived = new int[16];
+
+    private int changes;
+
+    public StateTracker(int columns) {
+        this.columns = columns;
+    }
+
+    public void subscribe(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    // Tells the listeners how this tick differs from the previous one and returns the number
+    // of changes. The first tick, and one for another player, resets them instead.
+    public int track(LocationsBuffer locations, int self) {
+        current.fill(locations, columns);
+        changes = 0;
+        if (!tracking || self != this.self) {
+            tracking = true;
+            this.self = self;
+            replay(locations);
+        } else {
+            diff();
+        }
+        final var swap = previous;
+        previous = current;
+        current = swap;
+        return changes;
+    }
+
+    // Everything in the tick as new, in the order the server sent it
+    private void replay(LocationsBuffer locations) {
+        for (final var listener : listeners) {
+            listener.reset(self);
+        }
+        for (int i = 0; i < locations.itemCount(); i++) {
+            spawned(locations.itemType(i), locations.itemId(i), locations.itemValue(i), locations.itemRow(i) * columns + locations.itemColumn(i));
+        }
+        for (int i = 0; i < locations.playerCount(); i++) {
+            appeared(locations.playerType(i), locations.playerName(i), locations.playerRow(i) * columns + locations.playerColumn(i));
+        }
+        own(current.health, current.gold, current.health, current.gold);
+    }
+
+    private void diff() {
+        final var before = previous;
+        final var after = current;
+
+        // Gone first, so a listener never sees two things on a cell that holds one
+        for (int i = 0, j = 0; i < before.itemCount; ) {
+            if (j == after.itemCount || before.itemId[i] < after.itemId[j]) {
+                consumed(before, i++);
+            } else if (after.itemId[j] < before.itemId[i]) {
+                j++;
+            } else {
+                if (!before.sameItem(i, after, j)) {
+                    consumed(before, i);
+                }
+                i++;
+                j++;
+            }
+        }
+        for (int i = 0, j = 0; i < before.humanCount; ) {
+            if (j == after.humanCount || before.humanName[i] < after.humanName[j]) {
+                left(LocationsBuffer.HUMAN, before.humanName[i], before.humanCell[i]);
+                i++;
+            } else if (after.humanName[j] < before.humanName[i]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        var goneCount = 0;
+        var arrivedCount = 0;
+        for (int i = 0, j = 0; i < before.dragonCount || j < after.dragonCount; ) {
+            if (j == after.dragonCount || (i < before.dragonCount && before.dragonKey[i] < after.dragonKey[j])) {
+                gone = append(gone, goneCount++, i++);
+            } else if (i == before.dragonCount || after.dragonKey[j] < before.dragonKey[i]) {
+                arrived = append(arrived, arrivedCount++, j++);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        for (int k = 0; k < arrivedCount; k++) {
+            final var size = after.dragonSize(arrived[k]);
+            final var cell = after.dragonCell(arrived[k]);
+            for (int m = 0; m < goneCount; m++) {
+                if (gone[m] >= 0 && before.dragonSize(gone[m]) == size && adjacent(before.dragonCell(gone[m]), cell)) {
+                    moved(LocationsBuffer.DRAGON, size, before.dragonCell(gone[m]), cell);
+                    gone[m] = -1;
+                    arrived[k] = -1;
+                    break;
+                }
+            }
+        }
+        for (int m = 0; m < goneCount; m++) {
+            if (gone[m] >= 0) {
+                left(LocationsBuffer.DRAGON, before.dragonSize(gone[m]), before.dragonCell(gone[m]));
+            }
+        }
+
+        for (int i = 0, j = 0; i < before.humanCount && j < after.humanCount; ) {
+            if (before.humanName[i] < after.humanName[j]) {
+                i++;
+            } else if (after.humanName[j] < before.humanName[i]) {
+                j++;
+            } else {
+                if (before.humanCell[i] != after.humanCell[j]) {
+                    moved(LocationsBuffer.HUMAN, after.humanName[j], before.humanCell[i], after.humanCell[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        // Then what is new
+        for (int i = 0, j = 0; j < after.itemCount; ) {
+            if (i == before.itemCount || after.itemId[j] < before.itemId[i]) {
+                spawned(after, j++);
+            } else if (before.itemId[i] < after.itemId[j]) {
+                i++;
+            } else {
+                if (!before.sameItem(i, after, j)) {
+                    spawned(after, j);
+                }
+                i++;
+                j++;
+            }
+        }
+        for (int i = 0, j = 0; j < after.humanCount; ) {
+            if (i == before.humanCount || after.humanName[j] < before.humanName[i]) {
+                appeared(LocationsBuffer.HUMAN, after.humanName[j], after.humanCell[j]);
+                j++;
+            } else if (before.humanName[i] < after.humanName[j]) {
+                i++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        for (int k = 0; k < arrivedCount; k++) {
+            if (arrived[k] >= 0) {
+                appeared(LocationsBuffer.DRAGON, after.dragonSize(arrived[k]), after.dragonCell(arrived[k]));
+            }
+        }
+
+        if (after.health != before.health || after.gold != before.gold) {
+            own(after.health, after.gold, after.health - before.health, after.gold - before.gold);
+        }
+    }
+
+    private boolean adjacent(int a, int b) {
+        final var delta = Math.abs(a - b);
+        return delta == columns || (delta == 1 && a / columns == b / columns);
+    }
+
+    private void consumed(Snapshot snapshot, int i) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.itemConsumed(snapshot.itemType[i], snapshot.itemId[i], snapshot.itemValue[i], snapshot.itemCell[i]);
+        }
+    }
+
+    private void spawned(Snapshot snapshot, int j) {
+        spawned(snapshot.itemType[j], snapshot.itemId[j], snapshot.itemValue[j], snapshot.itemCell[j]);
+    }
+
+    private void spawned(int type, int id, int value, int cell) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.itemSpawned(type, id, value, cell);
+        }
+    }
+
+    private void appeared(int type, int value, int cell) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.playerAppeared(type, value, cell);
+        }
+    }
+
+    private void moved(int type, int value, int from, int to) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.playerMoved(type, value, from, to);
+        }
+    }
+
+    private void left(int type, int value, int cell) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.playerLeft(type, value, cell);
+        }
+    }
+
+    private void own(int health, int gold, int healthDelta, int goldDelta) {
+        changes++;
+        for (final var listener : listeners) {
+            listener.ownChanged(health, gold, healthDelta, goldDelta);
+        }
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    // One tick with items sorted by id, humans by name and dragons by size, then cell
+    private static final class Snapshot {
+        private long[] keys = new long[16];
+
+        private int[] itemId = new int[16];
+        private int[] itemType = new int[16];
+        private int[] itemValue = new int[16];
+        private int[] itemCell = new int[16];
+        private int itemCount;
+
+        private int[] humanName = new int[16];
+        private int[] humanCell = new int[16];
+        private int humanCount;
+
+        private long[] dragonKey = new long[16];  // size << 32 | cell
+        private int dragonCount;
+
+        private int health;
+        private int gold;
+
+        private void fill(LocationsBuffer locations, int columns) {
+            itemCount = locations.itemCount();
+            if (itemCount > itemId.length) {
+                final var length = Math.max(itemCount, itemId.length * 2);
+                itemId = new int[length];
+                itemType = new int[length];
+                itemValue = new int[length];
+                itemCell = new int[length];
+            }
+            final var items = sortedKeys(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items[i] = (long) locations.itemId(i) << 32 | i;
+            }
+            Arrays.sort(items, 0, itemCount);
+            for (int k = 0; k < itemCount; k++) {
+                final var i = (int) items[k];
+                itemId[k] = locations.itemId(i);
+                itemType[k] = locations.itemType(i);
+                itemValue[k] = locations.itemValue(i);
+                itemCell[k] = locations.itemRow(i) * columns + locations.itemColumn(i);
+            }
+
+            final var players = locations.playerCount();
+            if (players > humanName.length) {
+                final var length = Math.max(players, humanName.length * 2);
+                humanName = new int[length];
+                humanCell = new int[length];
+                dragonKey = new long[length];
+            }
+            final var humans = sortedKeys(players);
+            humanCount = 0;
+            dragonCount = 0;
+            for (int i = 0; i < players; i++) {
+                final var cell = locations.playerRow(i) * columns + locations.playerColumn(i);
+                if (locations.playerType(i) == LocationsBuffer.HUMAN) {
+                    humans[humanCount++] = (long) locations.playerName(i) << 32 | cell;
+                } else {
+                    dragonKey[dragonCount++] = (long) locations.dragonSize(i).ordinal() << 32 | cell;
+                }
+            }
+            Arrays.sort(humans, 0, humanCount);
+            for (int k = 0; k < humanCount; k++) {
+                humanName[k] = (int) (humans[k] >>> 32);
+                humanCell[k] = (int) humans[k];
+            }
+            Arrays.sort(dragonKey, 0, dragonCount);
+
+            health = locations.health();
+            gold = locations.gold();
+        }
+
+        private long[] sortedKeys(int count) {
+            if (count > keys.length) {
+                keys = new long[Math.max(count, keys.length * 2)];
+            }
+            return keys;
+        }
+
+        private boolean sameItem(int i, Snapshot other, int j) {
+            return itemType[i] == other.itemType[j] && itemValue[i] == other.itemValue[j] && itemCell[i] == other.itemCell[j];
+        }
+
+        private int dragonSize(int index) {
+            return (int) (dragonKey[index] >>> 32);
+        }
+
+        private int dragonCell(int index) {
+            return (int) dragonKey[index];
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package example.state;
+
+import example.domain.game.Player;
+import example.path.Cells;
+import example.path.TimedTerrain;
+
+import java.util.Arrays;
+
+// Danger of every cell over the next horizon steps, rebuilt from a GridIndex every tick for
+// SpaceTimeAStar. A dragon hurts a player next to it by its size, and moves at most one
+// step a tick, so a cell d steps from a dragon can be hurt from step d - 1 on, and the
+// further the dragon has to come the less likely it does: the cost of such a cell is
+// dragonCost * (size + 1), halved for every step beyond the first. Rival players may step
+// onto any cell next to them, which costs rivalCost on the next step; the cells players and
+// dragons stand on cannot be entered on the next step. Beyond the horizon a cell keeps the
+// danger it has at the horizon and players are assumed to have moved on.
+// Distances come from one multi-source BFS per dragon size and one for the rivals, each
+// stopped at the horizon, so a tick costs time for the cells near a threat rather than for
+// the whole cave. Only those cells are cleared for the next tick. The danger of a cell is
+// worked out from those distances when asked for, a byte per cell and source rather than an
+// int per cell and step.
+public final class ThreatMap implements TimedTerrain {
+    private static final int SIZES = Player.Dragon.Size.values().length;
+    private static final int RIVALS = SIZES;               // reach row of the rival players
+    private static final byte UNREACHED = Byte.MAX_VALUE;
+
+    public record Settings(int horizon, int dragonCost, int rivalCost) {
+        // -Dmazev.threat.horizon (6), -Dmazev.threat.dragonCost (4) and -Dmazev.threat.rivalCost (2)
+        public static Settings fromProperties() {
+            return new Settings(
+                    Math.clamp(Integer.getInteger("mazev.threat.horizon", 6), 1, UNREACHED - 2),
+                    Integer.getInteger("mazev.threat.dragonCost", 4),
+                    Integer.getInteger("mazev.threat.rivalCost", 2));
+        }
+    }
+
+    private final GridIndex index;
+    private final int horizon;
+    private final int dragonCost;
+    private final int rivalCost;
+    private final int columns;
+    private final int cells;
+
+    private final byte[] reach;     // (SIZES + 1) rows: steps from the nearest dragon of each size, then from a rival
+    private final boolean[] touched;
+    private int[] touchedCells = new int[64];
+    private int touchedCount;
+    private int[] queue = new int[64];
+
+    public ThreatMap(GridIndex index, Settings settings) {
+        this.index = index;
+        this.horizon = settings.horizon();
+        this.dragonCost = settings.dragonCost();
+        this.rivalCost = settings.rivalCost();
+        this.columns = index.columns();
+        this.cells = index.cells();
+        this.reach = new byte[(SIZES + 1) * cells];
+        this.touched = new boolean[cells];
+        Arrays.fill(reach, UNREACHED);
+    }
+
+    // Follows the players of the index's current tick
+    public void update() {
+        for (int i = 0; i < touchedCount; i++) {
+            final var cell = touchedCells[i];
+            touched[cell] = false;
+            for (int row = 0; row <= SIZES; row++) {
+                reach[row * cells + cell] = UNREACHED;
+            }
+        }
+        touchedCount = 0;
+
+        // A dragon d steps away reaches the cell's neighbours after d - 1 steps
+        for (int size = 0; size < SIZES; size++) {
+            var sources = 0;
+            for (int i = 0; i < index.dragonCount(); i++) {
+                if (index.dragonSize(i) == size) {
+                    queue = append(queue, sources++, index.dragonCell(i));
+                }
+            }
+            spread(size, sources, horizon + 1);
+        }
+        var rivals = 0;
+        for (int i = 0; i < index.humanCount(); i++) {
+            queue = append(queue, rivals++, index.humanCell(i));
+        }
+        spread(RIVALS, rivals, 1);
+    }
+
+    // The neighbour that is cheapest to step onto next, -1 when none can be entered
+    public int safestStep(int cell) {
+        var safest = -1;
+        var safestCost = Integer.MAX_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+            if (neighbour < 0) {
+                continue;
+            }
+            final var cost = stepCost(neighbour, 1);
+            if (cost >= 0 && cost < safestCost) {
+                safest = neighbour;
+                safestCost = cost;
+            }
+        }
+        return safest;
+    }
+
+    // Danger on entering the cell with the step, without the terrain's own cost
+    public int danger(int cell, int step) {
+        step = Math.clamp(step, 1, horizon);
+        var danger = 0;
+        for (int size = 0; size < SIZES; size++) {
+            // On the dragon's own cell it is at least next to the player
+            final var distance = Math.max(1, reach[size * cells + cell]);
+            if (distance != UNREACHED && step >= distance - 1) {
+                danger += dragonCost * (size + 1) >> (distance - 1);
+            }
+        }
+        if (step == 1 && reach[RIVALS * cells + cell] == 1) {
+            danger += rivalCost;
+        }
+        return danger;
+    }
+
+    @Override
+    public int horizon() {
+        return horizon;
+    }
+
+    @Override
+    public int stepCost(int cell, int step) {
+        if (index.rock(cell) || (step == 1 && (index.blocked(cell) || index.dragon(cell)))) {
+            return -1;
+        }
+        return index.stepCost(cell) + danger(cell, step);
+    }
+
+    @Override
+    public int rows() {
+        return index.rows();
+    }
+
+    @Override
+    public int columns() {
+        return columns;
+    }
+
+    @Override
+    public boolean rock(int cell) {
+        return index.rock(cell);
+    }
+
+    @Override
+    public boolean blocked(int cell) {
+        return index.rock(cell);
+    }
+
+    @Override
+    public int stepCost(int cell) {
+        return index.stepCost(cell) + danger(cell, horizon);
+    }
+
+    @Override
+    public int occupiedCount() {
+        return index.occupiedCount();
+    }
+
+    @Override
+    public int occupiedCell(int position) {
+        return index.occupiedCell(position);
+    }
+
+    // Breadth first from the first sources cells of the queue through everything but rock,
+    // up to limit steps, into the reach row
+    private void spread(int row, int sources, int limit) {
+        final var offset = row * cells;
+        var head = 0;
+        var tail = 0;
+        for (int i = 0; i < sources; i++) {
+            final var cell = queue[i];
+            if (reach[offset + cell] != 0) {
+                reach[offset + cell] = 0;
+                touch(cell);
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            final var cell = queue[head++];
+            final var distance = reach[offset + cell] + 1;
+            if (distance > limit) {
+                continue;
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                final var neighbour = Cells.neighbour(cell, direction, columns, cells);
+                if (neighbour < 0 || index.rock(neighbour) || reach[offset + neighbour] != UNREACHED) {
+                    continue;
+                }
+                reach[offset + neighbour] = (byte) distance;
+                touch(neighbour);
+                queue = append(queue, tail++, neighbour);
+            }
+        }
+    }
+
+    private void touch(int cell) {
+        if (!touched[cell]) {
+            touched[cell] = true;
+            touchedCells = append(touchedCells, touchedCount++, cell);
+        }
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+}
@@ -0,0 +1,77 @@
+package example.state;
+
+import example.codec.LocationsBuffer;
+import example.domain.game.Player;
+
+import java.util.SplittableRandom;
+
+// 64-bit Zobrist hash of what stands where: this player, gold, health, other players and
+// dragons by size, each a random key per cell XORed in or out as a StateTracker reports it,
+// so a tick costs one XOR per change. Equal states hash equal whatever their history, but
+// different states may too, so a hash only says where to look.
+public final class ZobristHash implements StateTracker.Listener {
+    private static final int SELF = 0;
+    private static final int GOLD = 1;
+    private static final int HEALTH = 2;
+    private static final int HUMAN = 3;
+    private static final int DRAGON = 4;       // one kind per size from here
+    private static final int KINDS = DRAGON + Player.Dragon.Size.values().length;
+
+    private final int cells;
+    private final long[] keys;                 // kind * cells + cell
+    private int selfName = -1;
+    private long hash;
+
+    public ZobristHash(int cells) {
+        this.cells = cells;
+        this.keys = new long[KINDS * cells];
+        // Fixed seed, so a hash means the same in every run
+        final var random = new SplittableRandom(0x5EED_2B0B);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    @Override
+    public void reset(int self) {
+        selfName = self;
+        hash = 0;
+    }
+
+    @Override
+    public void itemSpawned(int type, int id, int value, int cell) {
+        hash ^= keys[(type == LocationsBuffer.GOLD ? GOLD : HEALTH) * cells + cell];
+    }
+
+    @Override
+    public void itemConsumed(int type, int id, int value, int cell) {
+        hash ^= keys[(type == LocationsBuffer.GOLD ? GOLD : HEALTH) * cells + cell];
+    }
+
+    @Override
+    public void playerAppeared(int type, int value, int cell) {
+        hash ^= keys[kind(type, value) * cells + cell];
+    }
+
+    @Override
+    public void playerMoved(int type, int value, int from, int to) {
+        final var offset = kind(type, value) * cells;
+        hash ^= keys[offset + from] ^ keys[offset + to];
+    }
+
+    @Override
+    public void playerLeft(int type, int value, int cell) {
+        hash ^= keys[kind(type, value) * cells + cell];
+    }
+
+    private int kind(int type, int value) {
+        if (type == LocationsBuffer.DRAGON) {
+            return DRAGON + value;
+        }
+        return value == selfName ? SELF : HUMAN;
+    }
+}
@@ -0,0 +1,120 @@
+package example.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.domain.Response;
+import example.domain.game.Item;
+import example.domain.game.Location;
+import example.domain.game.Player;
+import example.domain.game.SimpleCave;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every line must decode to what objectMapper.readValue(line, Response.class) gives, whether
+// the streaming path takes it or falls back to data binding, and must be refused when data
+// binding refuses it
+class ResponseDecoderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Reused across the lines of a test, like a session reuses its decoder
+    private final ResponseDecoder decoder = new ResponseDecoder(objectMapper);
+
+    @Test
+    void decodesMessagesOtherThanLocationsLikeDataBinding() throws IOException {
+        assertSameAsDataBinding(objectMapper.writeValueAsString(new Response.Authorized(new Player.HumanPlayer("alice"))));
+        assertSameAsDataBinding(objectMapper.writeValueAsString(new Response.Unauthorized()));
+        assertSameAsDataBinding(objectMapper.writeValueAsString(new Response.StateCave(new SimpleCave(5, 7, new SplittableRandom(1)))));
+    }
+
+    @Test
+    void decodesLocationsWithEveryEntityLikeDataBinding() throws IOException {
+        final var locations = new Response.StateLocations(
+                List.of(
+                        new Response.StateLocations.ItemLocation(new Item.Gold(1, 50), new Location(1, 2)),
+                        new Response.StateLocations.ItemLocation(new Item.Health(2, 20), new Location(3, 4))),
+                List.of(
+                        new Response.StateLocations.PlayerLocation(new Player.HumanPlayer("alice"), new Location(5, 6)),
+                        new Response.StateLocations.PlayerLocation(new Player.HumanPlayer("bob"), new Location(7, 8)),
+                        new Response.StateLocations.PlayerLocation(new Player.Dragon(Player.Dragon.Size.Small), new Location(9, 10)),
+                        new Response.StateLocations.PlayerLocation(new Player.Dragon(Player.Dragon.Size.Medium), new Location(11, 12)),
+                        new Response.StateLocations.PlayerLocation(new Player.Dragon(Player.Dragon.Size.Large), new Location(13, 14))),
+                100, 250);
+        assertSameAsDataBinding(objectMapper.writeValueAsString(locations));
+        assertSameAsDataBinding(objectMapper.writeValueAsString(new Response.StateLocations(List.of(), List.of(), null, null)));
+        assertSameAsDataBinding(objectMapper.writeValueAsString(locations));
+    }
+
+    @Test
+    void fallsBackToDataBindingForOtherLayouts() throws IOException {
+        // "type" not first
+        assertSameAsDataBinding("{\"itemLocations\":[],\"type\":\"L\",\"playerLocations\":[],\"health\":1,\"gold\":2}");
+        // Entity type after the field that depends on it
+        assertSameAsDataBinding("{\"type\":\"L\",\"itemLocations\":[{\"entity\":{\"id\":1,\"value\":5,\"type\":\"G\"},\"location\":{\"row\":1,\"column\":1}}],"
+                + "\"playerLocations\":[{\"entity\":{\"name\":\"alice\",\"type\":\"P\"},\"location\":{\"row\":2,\"column\":2}},"
+                + "{\"location\":{\"row\":3,\"column\":3},\"entity\":{\"size\":\"Large\",\"type\":\"D\"}}],\"health\":1,\"gold\":2}");
+        // Numbers as strings, which data binding coerces
+        assertSameAsDataBinding("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[],\"health\":\"7\",\"gold\":2}");
+        // A list left out
+        assertSameAsDataBinding("{\"type\":\"L\",\"itemLocations\":[],\"health\":1,\"gold\":2}");
+        // Locations interrupted half way by a fallback must not keep what was decoded before it
+        assertSameAsDataBinding("{\"type\":\"L\",\"itemLocations\":[{\"entity\":{\"type\":\"G\",\"id\":1,\"value\":5},\"location\":{\"row\":1,\"column\":1}}],"
+                + "\"playerLocations\":[{\"entity\":{\"type\":\"P\",\"name\":\"alice\"},\"location\":{\"row\":\"2\",\"column\":2}}],\"health\":1,\"gold\":2}");
+    }
+
+    @Test
+    void refusesWhatDataBindingRefuses() {
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"P\",\"size\":\"Small\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}");
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"D\",\"name\":\"alice\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}");
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"D\",\"size\":\"Small\",\"name\":\"alice\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}");
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"D\",\"size\":\"Huge\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}");
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[{\"entity\":{\"type\":\"X\",\"id\":1,\"value\":5},\"location\":{\"row\":1,\"column\":1}}],\"playerLocations\":[],\"health\":1,\"gold\":2}");
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[],\"health\":1,\"gold\":2,\"extra\":3}");
+    }
+
+    @Test
+    void decodesAfterARefusedLine() throws IOException {
+        assertRefused("{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"P\",\"size\":\"Small\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}");
+        final var line = "{\"type\":\"L\",\"itemLocations\":[],\"playerLocations\":[{\"entity\":{\"type\":\"P\",\"name\":\"alice\"},\"location\":{\"row\":1,\"column\":1}}],\"health\":1,\"gold\":2}";
+        assertTrue(decoder.decode(line));
+        assertSameAsDataBinding(line);
+    }
+
+    private void assertSameAsDataBinding(String line) throws IOException {
+        final var expected = objectMapper.readValue(line, Response.class);
+        final var bytes = line.getBytes(StandardCharsets.UTF_8);
+        final var locations = expected instanceof Response.StateLocations;
+        assertEquals(locations, decoder.decode(line), line);
+        assertSameResponse(expected, line);
+        assertEquals(locations, decoder.decode(bytes, 0, bytes.length), line);
+        assertSameResponse(expected, line);
+    }
+
+    private void assertSameResponse(Response expected, String line) throws IOException {
+        if (expected instanceof Response.StateLocations stateLocations) {
+            // A buffer holds a list that was left out as an empty one
+            final var filled = new Response.StateLocations(
+                    stateLocations.itemLocations() != null ? stateLocations.itemLocations() : List.of(),
+                    stateLocations.playerLocations() != null ? stateLocations.playerLocations() : List.of(),
+                    stateLocations.health(), stateLocations.gold());
+            assertEquals(filled, decoder.locations().toResponse(), line);
+        } else if (expected instanceof Response.StateCave) {
+            // SimpleCave has no equals, compare what it is made of
+            assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(decoder.response()), line);
+        } else {
+            assertEquals(expected, decoder.response(), line);
+        }
+    }
+
+    private void assertRefused(String line) {
+        final var bytes = line.getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> objectMapper.readValue(line, Response.class), line);
+        assertThrows(IOException.class, () -> decoder.decode(line), line);
+        assertThrows(IOException.class, () -> decoder.decode(bytes, 0, bytes.length), line);
+    }
+}
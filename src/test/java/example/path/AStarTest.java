@@ -0,0 +1,266 @@
+package example.path;
+
+import example.domain.game.Direction;
+import example.domain.game.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// AStar against the HashMap search it replaced, on seeded caves from square to very wide.
+// Paths must be the same list of directions unless the old open set treeified a bin, where
+// its order depended on System.identityHashCode; there only the cost has to match.
+class AStarTest {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Wide caves with few rocks are where the old open set grows big enough to treeify bins
+    private record Cave(int rows, int columns, double rocks, int seeds) {
+    }
+
+    @Test
+    void findsTheSamePathsAsTheHashMapSearch() {
+        var compared = 0;
+        var treeified = 0;
+        final var astar = new AStar();
+        final var caves = List.of(new Cave(12, 12, 0.25, 60), new Cave(30, 30, 0.25, 60), new Cave(20, 80, 0.25, 60),
+                new Cave(15, 200, 0.25, 60), new Cave(8, 600, 0.25, 60), new Cave(40, 1000, 0.1, 3));
+        for (final var cave : caves) {
+            for (int seed = 0; seed < cave.seeds(); seed++) {
+                final var terrain = new Grid(cave.rows(), cave.columns(), cave.rocks(), new SplittableRandom(seed * 31L + cave.columns()));
+                final var random = new SplittableRandom(seed);
+                for (int search = 0; search < 5; search++) {
+                    final var start = terrain.randomFree(random);
+                    final var target = terrain.randomFree(random);
+                    final var old = new HashMapSearch(terrain);
+                    final var expected = old.findPath(start, target);
+                    final var actual = astar.findPath(terrain, start, target);
+                    final var where = cave.rows() + "x" + cave.columns() + " seed " + seed + " from " + start + " to " + target;
+                    assertEquals(Planner.cost(terrain, start, expected), Planner.cost(terrain, start, actual), where);
+                    if (old.treeified) {
+                        treeified++;
+                    } else {
+                        assertEquals(expected, actual, where);
+                        compared++;
+                    }
+
+                    final var buffer = new PathBuffer();
+                    astar.findPath(terrain, start, target, buffer);
+                    assertEquals(actual, buffer.toList(), where);
+                }
+            }
+        }
+        // Nearly every search has to be compared path for path for the test to say anything
+        assertTrue(compared > 20 * treeified, compared + " compared, " + treeified + " treeified");
+    }
+
+    // Rocks around the border and scattered inside, other players on some free cells and
+    // health on others
+    private static final class Grid implements Terrain {
+        private final int rows;
+        private final int columns;
+        private final boolean[] rock;
+        private final boolean[] player;
+        private final boolean[] health;
+
+        Grid(int rows, int columns, double rocks, SplittableRandom random) {
+            this.rows = rows;
+            this.columns = columns;
+            this.rock = new boolean[rows * columns];
+            this.player = new boolean[rows * columns];
+            this.health = new boolean[rows * columns];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    final var cell = row * columns + column;
+                    final var border = row == 0 || column == 0 || row == rows - 1 || column == columns - 1;
+                    rock[cell] = border || random.nextDouble() < rocks;
+                    if (!rock[cell]) {
+                        player[cell] = random.nextDouble() < 0.02;
+                        health[cell] = !player[cell] && random.nextDouble() < 0.03;
+                    }
+                }
+            }
+        }
+
+        int randomFree(SplittableRandom random) {
+            while (true) {
+                final var cell = random.nextInt(rock.length);
+                if (!blocked(cell)) {
+                    return cell;
+                }
+            }
+        }
+
+        @Override
+        public int rows() {
+            return rows;
+        }
+
+        @Override
+        public int columns() {
+            return columns;
+        }
+
+        @Override
+        public boolean rock(int cell) {
+            return rock[cell];
+        }
+
+        @Override
+        public boolean blocked(int cell) {
+            return rock[cell] || player[cell];
+        }
+
+        @Override
+        public int stepCost(int cell) {
+            return health[cell] ? 0 : 1;
+        }
+
+        @Override
+        public int occupiedCount() {
+            return 0;
+        }
+
+        @Override
+        public int occupiedCell(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    // The search Client ran before AStar, on Location keys in HashMaps and HashSets. It also
+    // follows the bins of the open set's table, to tell when HashMap would have treeified one.
+    private static final class HashMapSearch {
+        private final Terrain terrain;
+        private final int columns;
+        private final Map<Integer, Integer> binSizes = new HashMap<>();
+        private int tableSize = 16;
+        boolean treeified;
+
+        HashMapSearch(Terrain terrain) {
+            this.terrain = terrain;
+            this.columns = terrain.columns();
+        }
+
+        List<Direction> findPath(int startCell, int targetCell) {
+            final var myLocation = location(startCell);
+            final var targetGold = location(targetCell);
+            final Map<Location, Integer> myLocationToCurrentDistances = new HashMap<>();
+            final Map<Location, Integer> myLocationToTargetDistances = new HashMap<>();
+            final Map<Location, Location> currentToPrevious = new HashMap<>();
+            final Set<Location> notVisited = new HashSet<>();
+            final Set<Location> visited = new HashSet<>();
+
+            myLocationToCurrentDistances.put(myLocation, 0);
+            myLocationToTargetDistances.put(myLocation, distance(myLocation, targetGold));
+            add(notVisited, myLocation);
+
+            while (!notVisited.isEmpty()) {
+                final var current = notVisited.stream()
+                        .min(Comparator.comparingInt(location -> myLocationToTargetDistances.getOrDefault(location, Integer.MAX_VALUE)))
+                        .orElseThrow();
+                if (current.equals(targetGold)) {
+                    return reconstructPath(currentToPrevious, current);
+                }
+                notVisited.remove(current);
+                binSizes.merge(bin(current), -1, Integer::sum);
+                visited.add(current);
+
+                for (final var direction : DIRECTIONS) {
+                    final var neighbour = neighbour(current, direction);
+                    final var cell = neighbour.row() * columns + neighbour.column();
+                    if (terrain.blocked(cell) || visited.contains(neighbour)) {
+                        continue;
+                    }
+                    final var neighbourDistance = myLocationToCurrentDistances.get(current) + terrain.stepCost(cell);
+                    if (!notVisited.contains(neighbour) || neighbourDistance < myLocationToCurrentDistances.getOrDefault(neighbour, Integer.MAX_VALUE)) {
+                        add(notVisited, neighbour);
+                        myLocationToCurrentDistances.put(neighbour, neighbourDistance);
+                        myLocationToTargetDistances.put(neighbour, neighbourDistance + distance(neighbour, targetGold));
+                        currentToPrevious.put(neighbour, current);
+                    }
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        // HashMap.putVal: a bin that reaches 9 entries doubles a table below 64 buckets and is
+        // treeified in a larger one, then the table doubles once past 3/4 full
+        private void add(Set<Location> set, Location location) {
+            if (!set.add(location)) {
+                return;
+            }
+            if (binSizes.merge(bin(location), 1, Integer::sum) > 8) {
+                if (tableSize < 64) {
+                    grow(set);
+                } else {
+                    treeified = true;
+                }
+            }
+            if (set.size() > tableSize * 3 / 4) {
+                grow(set);
+            }
+        }
+
+        private void grow(Set<Location> set) {
+            tableSize *= 2;
+            binSizes.clear();
+            for (final var location : set) {
+                binSizes.merge(bin(location), 1, Integer::sum);
+            }
+        }
+
+        private int bin(Location location) {
+            final var hash = location.hashCode();
+            return (hash ^ (hash >>> 16)) & (tableSize - 1);
+        }
+
+        private Location location(int cell) {
+            return new Location(cell / columns, cell % columns);
+        }
+
+        private static int distance(Location start, Location end) {
+            return Math.abs(start.row() - end.row()) + Math.abs(start.column() - end.column());
+        }
+
+        private static List<Direction> reconstructPath(Map<Location, Location> currentToPrevious, Location current) {
+            final List<Direction> path = new ArrayList<>();
+            while (currentToPrevious.containsKey(current)) {
+                final var previous = currentToPrevious.get(current);
+                path.add(direction(previous, current));
+                current = previous;
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        private static Direction direction(Location from, Location to) {
+            if (to.row() < from.row()) {
+                return Direction.Up;
+            } else if (to.row() > from.row()) {
+                return Direction.Down;
+            } else if (to.column() < from.column()) {
+                return Direction.Left;
+            } else {
+                return Direction.Right;
+            }
+        }
+
+        private static Location neighbour(Location location, Direction direction) {
+            return switch (direction) {
+                case Up -> new Location(location.row() - 1, location.column());
+                case Down -> new Location(location.row() + 1, location.column());
+                case Left -> new Location(location.row(), location.column() - 1);
+                case Right -> new Location(location.row(), location.column() + 1);
+            };
+        }
+    }
+}